@@ -0,0 +1,101 @@
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * An Abandonment describes how customers give up on the queue, on
+ * top of leaving when every queue is full:
+ *
+ * <ul>
+ * <li>a customer who has to wait reneges, leaving the queue, once
+ * it has waited for longer than its patience, drawn when it starts
+ * to wait;
+ * <li>an arriving customer who would have to wait balks, going
+ * away at once, if the queue it would join already holds at least
+ * a given number of customers.
+ * </ul>
+ *
+ * <p>Customers who renege or balk are counted apart from those who
+ * leave. {@code Abandonment.none()}, the default, does neither, and
+ * leaves the simulation exactly as it was. Like the Events, an
+ * Abandonment is immutable.
+ */
+public class Abandonment {
+
+    private static final Abandonment NONE = new Abandonment(null, Integer.MAX_VALUE);
+
+    private final IntFunction<Supplier<Double>> patience;   // by customerId, null if none
+    private final int balkAt;                               // MAX_VALUE if none
+
+    /**
+     * Constructs an Abandonment with all parameters specified.
+     */
+    private Abandonment(IntFunction<Supplier<Double>> patience, int balkAt) {
+        this.patience = patience;
+        this.balkAt = balkAt;
+    }
+
+    /**
+     * Returns the Abandonment in which no customer reneges or balks.
+     *
+     * @return the {@code Abandonment} of no customer.
+     */
+    public static Abandonment none() {
+        return NONE;
+    }
+
+    /**
+     * Returns an Abandonment identical to this one in which waiting
+     * customers renege after a patience drawn from the supplier of
+     * their customerId. An infinite patience never runs out.
+     *
+     * @param patience the supplier of patience of each customerId
+     * @return the {@code Abandonment} with reneging.
+     */
+    public Abandonment withPatience(IntFunction<Supplier<Double>> patience) {
+        return new Abandonment(patience, this.balkAt);
+    }
+
+    /**
+     * Returns an Abandonment identical to this one in which arriving
+     * customers balk at a queue of at least the given length.
+     *
+     * @param queueLength the shortest queue customers balk at
+     * @return the {@code Abandonment} with balking.
+     */
+    public Abandonment withBalking(int queueLength) {
+        return new Abandonment(this.patience, queueLength);
+    }
+
+    /**
+     * Returns {@code true} if any customer may renege or balk.
+     *
+     * @return {@code true} if abandonment is enabled.
+     */
+    public boolean isEnabled() {
+        return this.patience != null || this.balkAt != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the time a customer who starts to wait now will
+     * renege at, or infinity if it never will.
+     *
+     * @param customer the customer starting to wait
+     * @param now the time it starts to wait
+     * @return {@code double} value of the time of reneging.
+     */
+    double renegeTime(Customer customer, double now) {
+        if (this.patience == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return now + this.patience.apply(customer.getCustomerId()).get();
+    }
+
+    /**
+     * Returns the shortest queue an arriving customer balks at.
+     *
+     * @return {@code int} value of the queue length balked at.
+     */
+    int balkAt() {
+        return this.balkAt;
+    }
+}
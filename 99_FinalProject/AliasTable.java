@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An AliasTable is an empirical distribution read from a file,
+ * prepared by Vose's version of Walker's alias method so that a bin
+ * is drawn in O(1) however many bins there are.
+ *
+ * <p>The file holds one bin per line, as {@code low high weight},
+ * or one raw sample per line, each a bin of width 0 and weight 1.
+ * Blank lines and lines starting with {@code #} are skipped.
+ *
+ * <p>Each of the n columns of the table holds a share
+ * {@code prob[i]} of one bin and the rest of another,
+ * {@code alias[i]}. A single uniform u picks column
+ * {@code floor(u * n)}, and its fractional part both decides
+ * between the two bins and gives the position within the bin drawn,
+ * so one uniform makes one draw, as with the other Samplers.
+ *
+ * <p>Tables are cached by file, so that every Sampler of a sweep over
+ * the same histogram shares one table. A file whose contents have
+ * changed since it was read, as told by their digest, is read again
+ * and its new table replaces the old one, so the cache holds one
+ * table per file however often it is edited. The digest also keys
+ * results drawn from the table in a {@link ResultCache}.
+ */
+class AliasTable {
+
+    private static final Map<Path, AliasTable> CACHE =   // by file, the latest read
+        new ConcurrentHashMap<Path, AliasTable>();
+
+    private final double[] low;       // by bin
+    private final double[] high;
+    private final double[] prob;      // by column
+    private final int[] alias;
+    private final double mean;
+    private final String digest;      // of the contents of the file
+
+    /**
+     * Builds the table of the given bins.
+     */
+    private AliasTable(double[] low, double[] high, double[] weight, String digest) {
+        int n = weight.length;
+        this.low = low;
+        this.high = high;
+        this.prob = new double[n];
+        this.alias = new int[n];
+        this.digest = digest;
+
+        double total = 0.0;
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            total += weight[i];
+            sum += weight[i] * (low[i] + high[i]) / 2;
+        }
+        this.mean = sum / total;
+
+        int[] small = new int[n];    // columns under and over their share,
+        int[] large = new int[n];    // as stacks
+        int smalls = 0;
+        int larges = 0;
+        double[] scaled = new double[n];
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weight[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smalls++] = i;
+            } else {
+                large[larges++] = i;
+            }
+        }
+        while (smalls > 0 && larges > 0) {   // top up a small column from a large bin
+            int s = small[--smalls];
+            int l = large[--larges];
+            this.prob[s] = scaled[s];
+            this.alias[s] = l;
+            scaled[l] -= 1.0 - scaled[s];
+            if (scaled[l] < 1.0) {
+                small[smalls++] = l;
+            } else {
+                large[larges++] = l;
+            }
+        }
+        while (larges > 0) {                 // left full, up to rounding
+            int l = large[--larges];
+            this.prob[l] = 1.0;
+            this.alias[l] = l;
+        }
+        while (smalls > 0) {
+            int s = small[--smalls];
+            this.prob[s] = 1.0;
+            this.alias[s] = s;
+        }
+    }
+
+    /**
+     * Returns the table of a file, from the cache if the file has
+     * been read before and has not changed since.
+     *
+     * @param file the histogram or samples file
+     * @return the {@code AliasTable} of the file.
+     * @throws UncheckedIOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is malformed.
+     */
+    static AliasTable of(Path file) {
+        String contents;
+        try {
+            contents = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + file, e);
+        }
+        String digest = new CacheKey("AliasTable").add(contents).hex();
+        return CACHE.compute(file.toAbsolutePath().normalize(), (path, cached) ->
+                cached != null && cached.digest.equals(digest)
+                    ? cached : AliasTable.read(file, contents, digest));
+    }
+
+    /**
+     * Reads the bins or samples of the contents of a file.
+     */
+    private static AliasTable read(Path file, String contents, String digest) {
+        List<double[]> bins = new ArrayList<double[]>();
+        int columns = 0;
+        for (String line : contents.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("[\\s,]+");
+            if (columns == 0) {
+                columns = fields.length;
+            }
+            if (fields.length != columns || (columns != 1 && columns != 3)) {
+                throw new IllegalArgumentException("Expected " + (columns == 3 ? 3 : 1)
+                        + " numbers per line in " + file + ": " + line);
+            }
+            double[] bin = new double[3];
+            try {
+                bin[0] = Double.parseDouble(fields[0]);
+                bin[1] = columns == 3 ? Double.parseDouble(fields[1]) : bin[0];
+                bin[2] = columns == 3 ? Double.parseDouble(fields[2]) : 1.0;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed line in " + file + ": " + line, e);
+            }
+            if (bin[1] < bin[0] || !(bin[2] >= 0) || Double.isInfinite(bin[2])) {
+                throw new IllegalArgumentException("Malformed bin in " + file + ": " + line);
+            }
+            if (bin[2] > 0) {
+                bins.add(bin);
+            }
+        }
+        if (bins.isEmpty()) {
+            throw new IllegalArgumentException("No weight in " + file);
+        }
+
+        int n = bins.size();
+        double[] low = new double[n];
+        double[] high = new double[n];
+        double[] weight = new double[n];
+        for (int i = 0; i < n; i++) {
+            low[i] = bins.get(i)[0];
+            high[i] = bins.get(i)[1];
+            weight[i] = bins.get(i)[2];
+        }
+        return new AliasTable(low, high, weight, digest);
+    }
+
+    /**
+     * Returns the draw corresponding to a uniform random number:
+     * a point of the bin drawn, uniformly distributed within it if
+     * interpolated, or else its midpoint.
+     *
+     * @param u a uniform random number in [0, 1)
+     * @param interpolate whether to draw within the bin
+     * @return {@code double} value of the draw.
+     */
+    double draw(double u, boolean interpolate) {
+        int n = this.prob.length;
+        double scaled = u * n;
+        int column = Math.min(n - 1, (int) scaled);
+        double fraction = scaled - column;       // uniform in [0, 1) as well
+
+        int bin;
+        double within;
+        if (fraction < this.prob[column]) {
+            bin = column;
+            within = fraction / this.prob[column];
+        } else {
+            bin = this.alias[column];
+            within = (fraction - this.prob[column]) / (1.0 - this.prob[column]);
+        }
+        return interpolate
+            ? this.low[bin] + within * (this.high[bin] - this.low[bin])
+            : (this.low[bin] + this.high[bin]) / 2;
+    }
+
+    /**
+     * Returns the SHA-256 digest of the contents of the file the
+     * table was read from, in hexadecimal.
+     *
+     * @return the digest.
+     */
+    String digest() {
+        return this.digest;
+    }
+
+    /**
+     * Returns the mean of the distribution, which is the same
+     * whether or not draws are interpolated.
+     *
+     * @return {@code double} value of the mean.
+     */
+    double mean() {
+        return this.mean;
+    }
+}
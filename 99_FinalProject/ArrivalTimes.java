@@ -0,0 +1,102 @@
+import java.nio.DoubleBuffer;
+
+/**
+ * An ArrivalTimes is a read-only, indexed sequence of customer
+ * arrival times, where the customer at index i has customerId
+ * i + 1. It lets the simulation read arrival times as primitives
+ * straight from wherever they are kept: an {@link ImList}, an
+ * array, or a {@code DoubleBuffer} mapped from a
+ * {@link TraceFile}, which is never copied onto the heap.
+ */
+interface ArrivalTimes {
+
+    /**
+     * Returns the number of customers.
+     *
+     * @return {@code int} value of the number of customers.
+     */
+    int size();
+
+    /**
+     * Returns the arrival time of the customer at an index.
+     *
+     * @param index the index of the customer, customerId - 1
+     * @return {@code double} value of the arrival time.
+     */
+    double get(int index);
+
+    /**
+     * Checks if the arrival times are in non-decreasing order.
+     *
+     * @return {@code true} if the arrival times are sorted.
+     */
+    default boolean isSorted() {
+        for (int i = 1; i < this.size(); i++) {
+            if (this.get(i) < this.get(i - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ArrivalTimes of a list.
+     *
+     * @param list the list of arrival times
+     * @return the {@code ArrivalTimes} of the list.
+     */
+    static ArrivalTimes of(ImList<Double> list) {
+        return new ArrivalTimes() {
+            @Override
+            public int size() {
+                return list.size();
+            }
+
+            @Override
+            public double get(int index) {
+                return list.get(index);
+            }
+        };
+    }
+
+    /**
+     * Returns the ArrivalTimes of an array, which is not copied.
+     *
+     * @param array the array of arrival times
+     * @return the {@code ArrivalTimes} of the array.
+     */
+    static ArrivalTimes of(double[] array) {
+        return new ArrivalTimes() {
+            @Override
+            public int size() {
+                return array.length;
+            }
+
+            @Override
+            public double get(int index) {
+                return array[index];
+            }
+        };
+    }
+
+    /**
+     * Returns the ArrivalTimes of the whole of a buffer, from
+     * position zero, which is not copied.
+     *
+     * @param buffer the buffer of arrival times
+     * @return the {@code ArrivalTimes} of the buffer.
+     */
+    static ArrivalTimes of(DoubleBuffer buffer) {
+        return new ArrivalTimes() {
+            @Override
+            public int size() {
+                return buffer.limit();
+            }
+
+            @Override
+            public double get(int index) {
+                return buffer.get(index);
+            }
+        };
+    }
+}
@@ -5,17 +5,50 @@
  */
 public class ArriveEvent extends Event {
 
+    private final Dispatcher dispatcher;
+    private final int balkAt;    // shortest queue the customer balks at
+
+    /**
+     * Constructs an ArriveEvent with a timestamp, a customer,
+     * the Dispatcher that decides where the customer goes and
+     * the shortest queue the customer balks at rather than join.
+     * The {@code Event} superclass constructor for creating an
+     * Event with dummy servers is invoked.
+     * 
+     * @param timeStamp the time associated with arrival
+     * @param customer the arriving customer
+     * @param dispatcher the Dispatcher of the simulation run
+     * @param balkAt the shortest queue the customer balks at
+     */
+    ArriveEvent(double timeStamp, Customer customer, Dispatcher dispatcher, int balkAt) {
+        super(timeStamp, customer);
+        this.dispatcher = dispatcher;
+        this.balkAt = balkAt;
+    }
+
+    /**
+     * Constructs an ArriveEvent with a timestamp, a customer
+     * and the Dispatcher that decides where the customer goes.
+     * The customer never balks.
+     * 
+     * @param timeStamp the time associated with arrival
+     * @param customer the arriving customer
+     * @param dispatcher the Dispatcher of the simulation run
+     */
+    ArriveEvent(double timeStamp, Customer customer, Dispatcher dispatcher) {
+        this(timeStamp, customer, dispatcher, Integer.MAX_VALUE);
+    }
+
     /**
      * Constructs an ArriveEvent with a timestamp
-     * and a customer. The {@code Event} superclass
-     * constructor for creating an Event with dummy
-     * servers is invoked.
+     * and a customer, dispatched to the first server
+     * that can serve or queue.
      * 
      * @param timeStamp the time associated with arrival
      * @param customer the arriving customer
      */
     ArriveEvent(double timeStamp, Customer customer) {
-        super(timeStamp, customer);
+        this(timeStamp, customer, ScanDispatcher.INSTANCE);
     }
 
     /**
@@ -32,8 +65,11 @@ public class ArriveEvent extends Event {
      * the associated customer. It generates a WaitEvent otherwise, and
      * human server queues will increment by one, or self-checkout queues
      * will increment by one for all self-checkouts which is handled by the
-     * static methods of the QManager class. If the customer cannot
-     * be served, then a LeaveEvent is generated. The generated Event 
+     * static methods of the QManager class. The server to be served by
+     * or to queue at is chosen by the Dispatcher of the simulation
+     * run. If the customer cannot be served, then a LeaveEvent is
+     * generated, or a BalkEvent if the queue it would join is too long
+     * for it. The generated Event 
      * together with the final state of the servers will be returned as a 
      * Pair object with the first being the generated Event (which can be Serve, 
      * Wait, or Leave) and the associated updated list of Servers.
@@ -59,7 +95,7 @@ public class ArriveEvent extends Event {
             }
         }*/
 
-        servingNumber = QManager.getServing(input, currentTime);
+        servingNumber = this.dispatcher.serving(input, currentTime);
 
         if (servingNumber != 0) { // Only executed if any server can serve
             Server currentServer = currentList.get(servingNumber - 1);
@@ -83,11 +119,15 @@ public class ArriveEvent extends Event {
             }
         }*/
 
-        servingNumber = QManager.getQueuing(input);
+        servingNumber = this.dispatcher.queuing(input);
 
         if (servingNumber != 0) { // Only executed if any server can queue
             Server currentServer = currentList.get(servingNumber - 1);
             double currentServerFree = currentServer.getNextFree();
+
+            if (currentServer.getServerQ() >= this.balkAt) { // Trigger Balk Event
+                return new Pair<>(new BalkEvent(currentTime, currentCustomer), currentList);
+            }
             
             if (!currentServer.isSelf()) { // if queueing at human server
                 currentServer = currentServer.addOneServerQ();
@@ -0,0 +1,42 @@
+/**
+ * The {@code BalkEvent} class extends the Event class
+ * and provides for the implementation of a Customer
+ * balking: going away on arrival because the queue it
+ * would have to join is too long, although it is not full.
+ */
+public class BalkEvent extends Event {
+
+    /**
+     * Constructs a BalkEvent with a timestamp
+     * and a customer. The {@code Event} superclass
+     * constructor for creating an Event with dummy
+     * servers is invoked.
+     *
+     * @param timeStamp the time associated with balking
+     * @param customer the balking customer
+     */
+    BalkEvent(double timeStamp, Customer customer) {
+        super(timeStamp, customer);
+    }
+
+    /**
+     * Returns a String representation of the BalkEvent.
+     */
+    @Override
+    public String toString() {
+        return super.toString() + "balks" + "\n";
+    }
+
+    /**
+     * BalkEvent's implementation of the nextEvent method. Returns
+     * itself and the same input list of servers, as a LeaveEvent
+     * does.
+     *
+     * @return A {@code Pair<Event, ImList<Server>>} pair object.
+     */
+    @Override
+    public Pair<Event, ImList<Server>> nextEvent(ImList<Server> input) {
+        return new Pair<Event, ImList<Server>>(this, input);
+    }
+
+}
@@ -0,0 +1,136 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A CacheKey accumulates everything a simulation result depends on
+ * into a SHA-256 digest, which names the result in a
+ * {@link ResultCache}. Every value is added with a type tag, and
+ * every String with its length, so two different sequences of
+ * values never run together into the same bytes. Doubles are added
+ * by their exact bits.
+ */
+class CacheKey {
+
+    private final MessageDigest digest;
+    private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES + 1);
+
+    /**
+     * Constructs a CacheKey for results of the given kind.
+     *
+     * @param kind what produces the results, such as "Main"
+     */
+    CacheKey(String kind) {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {   // every JDK has SHA-256
+            throw new IllegalStateException(e);
+        }
+        this.add(kind);
+    }
+
+    /**
+     * Adds an int.
+     *
+     * @param value the value
+     * @return this CacheKey
+     */
+    CacheKey add(int value) {
+        this.scratch.clear();
+        this.digest.update(this.scratch.put((byte) 'I').putInt(value).flip());
+        return this;
+    }
+
+    /**
+     * Adds a long.
+     *
+     * @param value the value
+     * @return this CacheKey
+     */
+    CacheKey add(long value) {
+        this.scratch.clear();
+        this.digest.update(this.scratch.put((byte) 'J').putLong(value).flip());
+        return this;
+    }
+
+    /**
+     * Adds a double, by its bits.
+     *
+     * @param value the value
+     * @return this CacheKey
+     */
+    CacheKey add(double value) {
+        this.scratch.clear();
+        this.digest.update(this.scratch.put((byte) 'D')
+                .putLong(Double.doubleToLongBits(value)).flip());
+        return this;
+    }
+
+    /**
+     * Adds a String.
+     *
+     * @param value the value
+     * @return this CacheKey
+     */
+    CacheKey add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.add(bytes.length);
+        this.digest.update(bytes);
+        return this;
+    }
+
+    /**
+     * Adds all arrival times, preceded by their number.
+     *
+     * @param arrivalTimes the arrival times
+     * @return this CacheKey
+     */
+    CacheKey add(ArrivalTimes arrivalTimes) {
+        this.add(arrivalTimes.size());
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * Double.BYTES);
+        for (int i = 0; i < arrivalTimes.size(); i++) {
+            if (!buffer.hasRemaining()) {
+                this.digest.update(buffer.flip());
+                buffer.clear();
+            }
+            buffer.putLong(Double.doubleToLongBits(arrivalTimes.get(i)));
+        }
+        this.digest.update(buffer.flip());
+        return this;
+    }
+
+    /**
+     * Adds the seed and antithetic flag of a stream.
+     *
+     * @param stream the stream
+     * @return this CacheKey
+     */
+    CacheKey add(RandomStream stream) {
+        return this.add(stream.getSeed()).add(stream.isAntithetic() ? 1 : 0);
+    }
+
+    /**
+     * Returns the digest of everything added, in hexadecimal. The
+     * CacheKey cannot be used any further.
+     *
+     * @return the key.
+     */
+    String hex() {
+        return CacheKey.hex(this.digest.digest());
+    }
+
+    /**
+     * Returns bytes in hexadecimal.
+     *
+     * @param bytes the bytes
+     * @return the hexadecimal String.
+     */
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * An EventQueue that keeps every pending event as a handle into
+ * parallel primitive arrays: the timestamp, the index of the
+ * customer, the serverId and the kind of event, as encoded by an
+ * {@link EventCodec}. The heap itself is an array of handles, ordered
+ * as in the {@link EventComp}, so sifting moves one int rather than
+ * a whole record. The slot of a polled event is put on a free list
+ * and reused by the next event added, so the arrays only ever grow
+ * to the largest number of events pending at once.
+ *
+ * <p>A pending event costs 25 bytes of primitives instead of an
+ * Event, its Customer and the node of a {@link PQ} that holds it.
+ * Event objects are re-created only when one is polled.
+ */
+class CompactEventQueue implements EventQueue {
+
+    private static final int ARITY = 4;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NONE = -1;
+
+    private final EventCodec codec;
+    private double[] times = new double[INITIAL_CAPACITY];   // by slot
+    private int[] customers = new int[INITIAL_CAPACITY];
+    private int[] servers = new int[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] nextFree = new int[INITIAL_CAPACITY];      // free list, by slot
+    private int[] heap = new int[INITIAL_CAPACITY];          // slots, in heap order
+    private int freeHead = NONE;
+    private int slotsUsed = 0;   // slots ever handed out
+    private int size = 0;
+
+    /**
+     * Constructs an empty CompactEventQueue.
+     *
+     * @param codec the codec of the events of the run
+     */
+    CompactEventQueue(EventCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void add(Event event) {
+        int slot = this.allocate();
+        this.times[slot] = event.getTimeStamp();
+        this.customers[slot] = event.getCustomer().getCustomerId() - 1;
+        this.servers[slot] = event.getServer().getServerId();
+        this.kinds[slot] = (byte) this.codec.kind(event);
+
+        int i = this.size++;
+        while (i > 0) {           // sift the hole up
+            int parent = (i - 1) / ARITY;
+            if (!this.before(slot, this.heap[parent])) {
+                break;
+            }
+            this.heap[i] = this.heap[parent];
+            i = parent;
+        }
+        this.heap[i] = slot;
+    }
+
+    @Override
+    public Event poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        int first = this.heap[0];
+        Event event = this.codec.decode(this.kinds[first], this.times[first],
+                this.customers[first], this.servers[first]);
+        this.release(first);
+
+        int last = --this.size;
+        if (last > 0) {
+            int slot = this.heap[last];
+            int i = 0;
+            while (true) {        // sift the hole down
+                int child = ARITY * i + 1;
+                if (child >= last) {
+                    break;
+                }
+                int end = Math.min(child + ARITY, last);
+                int least = child;
+                for (int c = child + 1; c < end; c++) {
+                    if (this.before(this.heap[c], this.heap[least])) {
+                        least = c;
+                    }
+                }
+                if (!this.before(this.heap[least], slot)) {
+                    break;
+                }
+                this.heap[i] = this.heap[least];
+                i = least;
+            }
+            this.heap[i] = slot;
+        }
+        return event;
+    }
+
+    @Override
+    public boolean firstBefore(double time, int customerId) {
+        if (this.size == 0) {
+            return false;
+        }
+        int first = this.heap[0];
+        return this.times[first] < time
+            || (this.times[first] == time && this.customers[first] < customerId - 1);
+    }
+
+    /**
+     * Compares the events in two slots by timestamp, then by
+     * customer index.
+     */
+    private boolean before(int slot1, int slot2) {
+        double t1 = this.times[slot1];
+        double t2 = this.times[slot2];
+        return t1 < t2 || (t1 == t2 && this.customers[slot1] < this.customers[slot2]);
+    }
+
+    /**
+     * Returns a free slot, taken from the free list if there is
+     * one, growing the arrays if they are full.
+     */
+    private int allocate() {
+        if (this.freeHead != NONE) {
+            int slot = this.freeHead;
+            this.freeHead = this.nextFree[slot];
+            return slot;
+        }
+        if (this.slotsUsed == this.times.length) {   // every slot is pending
+            int capacity = 2 * this.times.length;
+            this.times = Arrays.copyOf(this.times, capacity);
+            this.customers = Arrays.copyOf(this.customers, capacity);
+            this.servers = Arrays.copyOf(this.servers, capacity);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.nextFree = Arrays.copyOf(this.nextFree, capacity);
+            this.heap = Arrays.copyOf(this.heap, capacity);
+        }
+        return this.slotsUsed++;
+    }
+
+    /**
+     * Puts a slot on the free list.
+     */
+    private void release(int slot) {
+        this.nextFree[slot] = this.freeHead;
+        this.freeHead = slot;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.function.Supplier;
+
+/**
+ * A Counter is a resource of one or more interchangeable units for
+ * which {@link SimProcess} objects compete, such as a human server
+ * (one unit) or the bank of self-checkouts (one unit per counter,
+ * one shared queue). Each unit has a next free time, with the same
+ * meaning as that of a {@link Server}, and the Counter keeps the
+ * length of the queue of processes waiting for any unit.
+ *
+ * <p>A Counter is only ever accessed by the one process the
+ * {@link ProcessScheduler} is running, so it needs no locking.
+ */
+public class Counter {
+
+    private final ImList<Server> units;
+    private final double[] nextFree;
+    private final int qmax;
+    private final Supplier<Double> restTime;
+    private int queued = 0;
+
+    /**
+     * Constructs a Counter.
+     *
+     * @param units the servers the units stand for, used for labels
+     * @param qmax the maximum queue length
+     * @param restTime the supplier of rest times added on release
+     */
+    public Counter(ImList<Server> units, int qmax, Supplier<Double> restTime) {
+        this.units = units;
+        this.nextFree = new double[units.size()];
+        this.qmax = qmax;
+        this.restTime = restTime;
+    }
+
+    /**
+     * Returns the index of the first unit free at the given time,
+     * or -1 if no unit is free.
+     *
+     * @param time the time to check
+     * @return {@code int} index of the first free unit.
+     */
+    public int firstFree(double time) {
+        for (int i = 0; i < this.nextFree.length; i++) {
+            if (time >= this.nextFree[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the earliest next free time of any unit.
+     *
+     * @return {@code double} value of the earliest next free time.
+     */
+    public double earliestFree() {
+        double earliest = this.nextFree[0];
+        for (double t : this.nextFree) {
+            earliest = Math.min(earliest, t);
+        }
+        return earliest;
+    }
+
+    /**
+     * Checks if a process is able to join the queue.
+     *
+     * @return {@code true} if the queue is shorter than qmax.
+     */
+    public boolean canQueue() {
+        return this.queued < this.qmax;
+    }
+
+    /**
+     * Returns the server a unit stands for.
+     *
+     * @param unit the index of the unit
+     * @return the {@code Server} of the unit.
+     */
+    public Server label(int unit) {
+        return this.units.get(unit);
+    }
+
+    /**
+     * Adds one process to the queue.
+     */
+    void join() {
+        this.queued++;
+    }
+
+    /**
+     * Removes one process from the queue.
+     */
+    void leave() {
+        this.queued--;
+    }
+
+    /**
+     * Marks a unit busy until the given time.
+     *
+     * @param unit the index of the unit
+     * @param until the time at which the unit is free again
+     */
+    void occupy(int unit, double until) {
+        this.nextFree[unit] = until;
+    }
+
+    /**
+     * Adds the supplied rest time to a unit's next free time.
+     *
+     * @param unit the index of the unit
+     */
+    void rest(int unit) {
+        this.nextFree[unit] += this.restTime.get();
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * A CustomerProcess is the whole life of a shop customer written as
+ * one sequential body: arrive, acquire a server or self-checkout
+ * (waiting in its queue if need be), hold it for the service time
+ * and release it. It is the process-oriented counterpart of the
+ * chain of ArriveEvent, WaitEvent, ServeEvent, DoneEvent and
+ * LeaveEvent, and produces the same trace.
+ */
+public class CustomerProcess extends SimProcess {
+
+    private final Customer customer;
+    private final ProcessShop shop;
+
+    /**
+     * Constructs the process of a customer.
+     *
+     * @param customer the customer
+     * @param shop the shop the customer arrives at
+     */
+    CustomerProcess(Customer customer, ProcessShop shop) {
+        super(customer.getCustomerId());
+        this.customer = customer;
+        this.shop = shop;
+    }
+
+    @Override
+    protected void body() {
+        this.shop.record(new ArriveEvent(this.now(), this.customer));
+
+        Counter counter = this.shop.firstServing(this.now());
+        if (counter == null) {
+            counter = this.shop.firstQueuing();
+            if (counter == null) {
+                this.shop.record(new LeaveEvent(this.now(), this.customer));
+                return;
+            }
+            this.shop.record(new WaitEvent(this.now(), this.customer,
+                        counter.label(0)));
+        }
+
+        int unit = this.acquire(counter);
+        Server server = counter.label(unit);
+        this.shop.record(new ServeEvent(this.now(), this.customer, server));
+
+        this.hold(counter, unit, this.customer.getServiceTime());
+        this.shop.record(new DoneEvent(this.now(), this.customer, server));
+        this.release(counter, unit);
+    }
+}
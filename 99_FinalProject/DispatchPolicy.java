@@ -0,0 +1,83 @@
+/**
+ * A DispatchPolicy is the extension point for how arriving customers
+ * are assigned to servers and self-checkouts. A policy creates a
+ * fresh {@link Dispatcher}, together with whatever index it keeps,
+ * for every simulation run.
+ */
+public interface DispatchPolicy {
+
+    /**
+     * The original policy, returned by {@code firstAvailable}.
+     */
+    DispatchPolicy FIRST_AVAILABLE = FirstAvailableDispatcher::new;
+
+    /**
+     * Creates the Dispatcher of one simulation run.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     * @return a new {@code Dispatcher}.
+     */
+    Dispatcher dispatcher(ImList<Server> servers);
+
+    /**
+     * Returns the original policy: the first server by id that can
+     * serve, and otherwise the first server by id that can queue.
+     *
+     * @return the first-available {@code DispatchPolicy}.
+     */
+    static DispatchPolicy firstAvailable() {
+        return FIRST_AVAILABLE;
+    }
+
+    /**
+     * Returns the join-shortest-queue policy.
+     *
+     * @return the shortest-queue {@code DispatchPolicy}.
+     */
+    static DispatchPolicy shortestQueue() {
+        return ShortestQueueDispatcher::new;
+    }
+
+    /**
+     * Returns the least-recently-busy policy.
+     *
+     * @return the least-recently-busy {@code DispatchPolicy}.
+     */
+    static DispatchPolicy leastRecentlyBusy() {
+        return LeastRecentlyBusyDispatcher::new;
+    }
+
+    /**
+     * Returns the random-of-two policy.
+     *
+     * @param seed the seed of the sampling, for reproducible runs
+     * @return the random-of-two {@code DispatchPolicy}.
+     */
+    static DispatchPolicy randomOfTwo(long seed) {
+        return servers -> new RandomOfTwoDispatcher(servers, seed);
+    }
+
+    /**
+     * Returns the policy with the given name: {@code first},
+     * {@code jsq}, {@code lrb} or {@code p2}.
+     *
+     * @param name the name of the policy
+     * @param seed the seed of any random sampling
+     * @return the named {@code DispatchPolicy}.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    static DispatchPolicy named(String name, long seed) {
+        switch (name) {
+            case "first":
+                return DispatchPolicy.firstAvailable();
+            case "jsq":
+                return DispatchPolicy.shortestQueue();
+            case "lrb":
+                return DispatchPolicy.leastRecentlyBusy();
+            case "p2":
+                return DispatchPolicy.randomOfTwo(seed);
+            default:
+                throw new IllegalArgumentException("Unknown dispatch policy: " + name);
+        }
+    }
+}
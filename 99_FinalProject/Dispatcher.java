@@ -0,0 +1,45 @@
+/**
+ * A Dispatcher decides which server or self-checkout an arriving
+ * customer goes to. It is created by a {@link DispatchPolicy} at the
+ * start of every simulation run and is consulted by ArriveEvents,
+ * in place of the static scans of the QManager class.
+ *
+ * <p>Dispatchers may keep an index of the servers that is updated
+ * incrementally: the simulation hands every processed event to
+ * {@code refresh} together with the resulting list of servers.
+ */
+public interface Dispatcher {
+
+    /**
+     * Returns the serverId of the server an arriving customer is
+     * served by straight away, or 0 if the customer cannot be
+     * served straight away.
+     *
+     * @param servers the current list of servers and self-checkouts
+     * @param time the arrival time
+     * @return integer value of the serverId
+     */
+    int serving(ImList<Server> servers, double time);
+
+    /**
+     * Returns the serverId of the server an arriving customer
+     * queues at, or 0 if the customer cannot queue anywhere.
+     * Queuing at any self-checkout means joining the shared
+     * self-checkout queue.
+     *
+     * @param servers the current list of servers and self-checkouts
+     * @return integer value of the serverId
+     */
+    int queuing(ImList<Server> servers);
+
+    /**
+     * Brings any index up to date after an event has been
+     * processed.
+     *
+     * @param servers the list of servers after the event
+     * @param current the event that was processed
+     * @param next the event it generated
+     * @return the up-to-date Dispatcher.
+     */
+    Dispatcher refresh(ImList<Server> servers, Event current, Event next);
+}
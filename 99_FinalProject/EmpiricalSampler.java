@@ -0,0 +1,56 @@
+/**
+ * A Sampler of an empirical distribution read from a file, drawn
+ * through the {@link AliasTable} of the file. Its specification
+ * names the file, so the digest of the table read from it is added
+ * to its cache key: results cached for a file are not reused once
+ * the file has changed.
+ */
+class EmpiricalSampler implements Sampler {
+
+    private final String spec;
+    private final AliasTable table;
+    private final boolean interpolate;
+
+    /**
+     * Constructs an EmpiricalSampler with all parameters specified.
+     *
+     * @param spec the canonical specification
+     * @param table the table of the file
+     * @param interpolate whether to draw uniformly within a bin
+     */
+    EmpiricalSampler(String spec, AliasTable table, boolean interpolate) {
+        this.spec = spec;
+        this.table = table;
+        this.interpolate = interpolate;
+    }
+
+    @Override
+    public double draw(double u) {
+        return this.table.draw(u, this.interpolate);
+    }
+
+    @Override
+    public double mean() {
+        return this.table.mean();
+    }
+
+    @Override
+    public String spec() {
+        return this.spec;
+    }
+
+    @Override
+    public boolean isScaleFamily() {    // the bins do not move with a perturbed mean
+        return false;
+    }
+
+    @Override
+    public String cacheKey() {
+        return this.spec + "#" + this.table.digest();
+    }
+
+    @Override
+    public String toString() {
+        return this.spec;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * An Estimate is the result of a replication experiment: a point
+ * estimate, the variance of the estimator, and the variance a crude
+ * Monte Carlo estimator would have had from the same number of
+ * simulator runs. Their ratio is the variance reduction achieved,
+ * that is how many times fewer runs the method needs for the same
+ * precision.
+ */
+public class Estimate {
+
+    private static final double Z_95 = 1.959964;
+    private static final double NEGLIGIBLE = 1e-12;  // variance taken as none
+
+    private final String method;
+    private final int runs;
+    private final double mean;
+    private final double variance;
+    private final double crudeVariance;
+
+    /**
+     * Constructs an Estimate with all parameters specified.
+     *
+     * @param method the name of the method
+     * @param runs the number of simulator runs used
+     * @param mean the point estimate
+     * @param variance the variance of the estimator
+     * @param crudeVariance the variance of a crude estimator
+     */
+    public Estimate(String method, int runs, double mean, double variance,
+            double crudeVariance) {
+        this.method = method;
+        this.runs = runs;
+        this.mean = mean;
+        this.variance = variance;
+        this.crudeVariance = crudeVariance;
+    }
+
+    /**
+     * Returns the name of the method.
+     *
+     * @return the name of the method.
+     */
+    public String method() {
+        return this.method;
+    }
+
+    /**
+     * Returns the number of simulator runs used.
+     *
+     * @return {@code int} value of the number of runs.
+     */
+    public int runs() {
+        return this.runs;
+    }
+
+    /**
+     * Returns the point estimate.
+     *
+     * @return {@code double} value of the estimate.
+     */
+    public double mean() {
+        return this.mean;
+    }
+
+    /**
+     * Returns the variance of the estimator.
+     *
+     * @return {@code double} value of the variance.
+     */
+    public double variance() {
+        return this.variance;
+    }
+
+    /**
+     * Returns the half-width of the 95% confidence interval.
+     *
+     * @return {@code double} value of the half-width.
+     */
+    public double halfWidth() {
+        return Z_95 * Math.sqrt(this.variance);
+    }
+
+    /**
+     * Returns the factor by which the variance was reduced compared
+     * to crude Monte Carlo with the same number of runs, or NaN if
+     * either variance is negligible or not a number, as when every
+     * run gave the same result, so that there is nothing to reduce.
+     *
+     * @return {@code double} value of the variance reduction.
+     */
+    public double varianceReduction() {
+        if (!(this.variance > NEGLIGIBLE) || !(this.crudeVariance > NEGLIGIBLE)) {
+            return Double.NaN;
+        }
+        return this.crudeVariance / this.variance;
+    }
+
+    /**
+     * Returns a one-line report of the Estimate.
+     *
+     * @return the String representation of the Estimate.
+     */
+    @Override
+    public String toString() {
+        double reduction = this.varianceReduction();
+        return String.format("%-22s runs=%6d  mean=%10.5f  +/-%9.5f (95%%)  "
+                + "variance reduction %s", this.method, this.runs, this.mean,
+                this.halfWidth(), Double.isNaN(reduction)
+                    ? "n/a" : String.format("x%.2f", reduction));
+    }
+}
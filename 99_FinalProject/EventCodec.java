@@ -0,0 +1,95 @@
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * An EventCodec turns the pending events of a run into fixed-width
+ * records of primitives and back: the timestamp, the index of the
+ * customer, the serverId and the kind of event. Nothing else needs
+ * to be kept, because the events only use the id of their server,
+ * taking its state from the list of servers, and a customer is
+ * re-created from its index, arrival time and service time supplier
+ * whenever one of its events is decoded. Since a customer's service
+ * time is drawn only once, by its ServeEvent, the re-created
+ * customers behave exactly like the original.
+ *
+ * <p>ArriveEvents are never encoded, as a SimulationRun merges
+ * arrivals into the stream of polled events itself.
+ */
+class EventCodec {
+
+    static final int SERVE = 0;
+    static final int WAIT = 1;
+    static final int SILENT_WAIT = 2;    // a non-first WaitEvent
+    static final int DONE = 3;
+    static final int LEAVE = 4;
+
+    private final ArrivalTimes arrivalTimes;
+    private final IntFunction<Supplier<Double>> serviceTimes;
+    private final ImList<Server> servers;
+
+    /**
+     * Constructs an EventCodec.
+     *
+     * @param arrivalTimes the customer arrival times
+     * @param serviceTimes the supplier of service times of each customerId
+     * @param servers the initial list of servers, used as labels
+     */
+    EventCodec(ArrivalTimes arrivalTimes, IntFunction<Supplier<Double>> serviceTimes,
+            ImList<Server> servers) {
+        this.arrivalTimes = arrivalTimes;
+        this.serviceTimes = serviceTimes;
+        this.servers = servers;
+    }
+
+    /**
+     * Returns the kind of an event.
+     *
+     * @param event the event
+     * @return {@code int} value of the kind.
+     * @throws IllegalArgumentException if the event cannot be encoded
+     */
+    int kind(Event event) {
+        if (event instanceof ServeEvent) {
+            return SERVE;
+        } else if (event instanceof WaitEvent) {
+            return ((WaitEvent) event).isFirstInstance() ? WAIT : SILENT_WAIT;
+        } else if (event instanceof DoneEvent) {
+            return DONE;
+        } else if (event instanceof LeaveEvent) {
+            return LEAVE;
+        }
+        throw new IllegalArgumentException("cannot encode " + event.getClass().getSimpleName());
+    }
+
+    /**
+     * Re-creates an event from its record.
+     *
+     * @param kind the kind of the event
+     * @param time the timestamp of the event
+     * @param customerIndex the index of the customer, customerId - 1
+     * @param serverId the serverId of the event, 0 if it has no server
+     * @return the {@code Event}.
+     */
+    Event decode(int kind, double time, int customerIndex, int serverId) {
+        Customer customer = new Customer(customerIndex + 1,
+                this.arrivalTimes.get(customerIndex),
+                this.serviceTimes.apply(customerIndex + 1));
+
+        if (kind == LEAVE) {
+            return new LeaveEvent(time, customer);
+        }
+        Server server = this.servers.get(serverId - 1);
+        switch (kind) {
+            case SERVE:
+                return new ServeEvent(time, customer, server);
+            case WAIT:
+                return new WaitEvent(time, customer, server, true);
+            case SILENT_WAIT:
+                return new WaitEvent(time, customer, server, false);
+            case DONE:
+                return new DoneEvent(time, customer, server);
+            default:
+                throw new IllegalArgumentException("unknown kind " + kind);
+        }
+    }
+}
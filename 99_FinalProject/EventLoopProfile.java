@@ -0,0 +1,208 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An EventLoopProfile breaks down where the time of a simulation
+ * goes: how many events of each type were polled, non-first
+ * WaitEvents counted apart from first ones, how long
+ * {@code nextEvent} took for each type, and how long was spent
+ * polling and adding to the PQ and formatting the output.
+ *
+ * <p>Counts are exact, but only a random sample of about one event
+ * in {@code SAMPLE_INTERVAL} is timed, so that the calls to
+ * {@code System.nanoTime} cost a few nanoseconds per event on
+ * average rather than several times the work being measured. The
+ * time of each phase and of each type is estimated by scaling the
+ * time of its sampled events by the number of events.
+ *
+ * <p>A {@link SimulationRun} calls {@code begin} and {@code end}
+ * around each event and the phases in between; the Simulator adds
+ * the formatting of the events it writes. Like a SimulationRun, an
+ * EventLoopProfile is mutable and owned by that single run.
+ */
+public class EventLoopProfile {
+
+    static final int SAMPLE_INTERVAL = 32;
+
+    private static final int POLL = 0;
+    private static final int NEXT_EVENT = 1;
+    private static final int ADD = 2;
+    private static final int FORMAT = 3;
+    private static final String[] PHASES = {"poll", "nextEvent", "add", "format"};
+
+    private final Map<String, long[]> types =     // count, sampled, sampled nanos
+        new LinkedHashMap<String, long[]>();
+    private final long[] phaseNanos = new long[PHASES.length];  // of sampled events
+    private long events = 0;
+    private long sampled = 0;
+    private int maxQueueDepth = 0;
+    private long seed = 0x9E3779B97F4A7C15L;      // of the xorshift sampler
+    private boolean timing = false;               // if the current event is sampled
+    private long mark;                            // nanoTime at the last mark
+    private long startNanos = 0;
+    private long wallNanos = 0;
+
+    /**
+     * Constructs an empty EventLoopProfile.
+     */
+    public EventLoopProfile() {
+    }
+
+    /**
+     * Starts the next event, deciding whether it is sampled.
+     */
+    void begin() {
+        if (this.events == 0) {
+            this.startNanos = System.nanoTime();
+        }
+        this.seed ^= this.seed << 13;
+        this.seed ^= this.seed >>> 7;
+        this.seed ^= this.seed << 17;
+        this.timing = (this.seed & (SAMPLE_INTERVAL - 1)) == 0;
+        if (this.timing) {
+            this.mark = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ends a phase of the current event: the poll, the call to
+     * {@code nextEvent}, or the add.
+     */
+    private void phase(int phase) {
+        if (this.timing) {
+            long now = System.nanoTime();
+            this.phaseNanos[phase] += now - this.mark;
+            this.mark = now;
+        }
+    }
+
+    /**
+     * Ends the poll of the current event.
+     */
+    void polled() {
+        this.phase(POLL);
+    }
+
+    /**
+     * Ends the call to {@code nextEvent} of the current event.
+     *
+     * @param event the event polled
+     */
+    void generated(Event event) {
+        long nanos = this.timing ? System.nanoTime() - this.mark : 0L;
+        this.phase(NEXT_EVENT);
+
+        String type = event.getClass().getSimpleName();
+        if (event instanceof WaitEvent && !((WaitEvent) event).isFirstInstance()) {
+            type += " (re-poll)";
+        }
+        long[] counts = this.types.get(type);
+        if (counts == null) {
+            counts = new long[3];
+            this.types.put(type, counts);
+        }
+        counts[0]++;
+        if (this.timing) {
+            counts[1]++;
+            counts[2] += nanos;
+        }
+    }
+
+    /**
+     * Ends the current event, after its next event was added to the
+     * PQ.
+     *
+     * @param queueDepth the number of events left in the PQ
+     */
+    void end(int queueDepth) {
+        this.phase(ADD);
+        this.events++;
+        if (this.timing) {
+            this.sampled++;
+        }
+        this.maxQueueDepth = Math.max(this.maxQueueDepth, queueDepth);
+        this.wallNanos = System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * Returns {@code true} if the event last polled was sampled, so
+     * that the time taken to format it should be given to
+     * {@code formatted}.
+     *
+     * @return {@code true} if the last event is timed.
+     */
+    boolean isTiming() {
+        return this.timing;
+    }
+
+    /**
+     * Adds the time taken to format the event last polled.
+     *
+     * @param nanos the nanoseconds taken
+     */
+    void formatted(long nanos) {
+        this.phaseNanos[FORMAT] += nanos;
+    }
+
+    /**
+     * Returns the number of events polled.
+     *
+     * @return {@code long} value of the number of events.
+     */
+    public long events() {
+        return this.events;
+    }
+
+    /**
+     * Returns the largest number of events left in the PQ after an
+     * event.
+     *
+     * @return {@code int} value of the maximum PQ depth.
+     */
+    public int maxQueueDepth() {
+        return this.maxQueueDepth;
+    }
+
+    /**
+     * Returns the estimated nanoseconds spent in the phases of the
+     * loop over all events, by scaling those of the sampled ones.
+     */
+    private double estimate(long sampledNanos) {
+        return this.sampled == 0 ? 0.0 : (double) sampledNanos * this.events / this.sampled;
+    }
+
+    /**
+     * Returns a table of the count, share and mean {@code nextEvent}
+     * time of every event type, then one of the estimated time and
+     * share of every phase, then the maximum PQ depth and the wall
+     * time of the loop.
+     *
+     * @return the String representation of the profile.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(String.format("%-22s %12s %7s %14s\n",
+                    "event", "count", "share", "nextEvent ns"));
+        for (Map.Entry<String, long[]> type : this.types.entrySet()) {
+            long[] counts = type.getValue();
+            report.append(String.format("%-22s %12d %6.1f%% %14s\n", type.getKey(), counts[0],
+                        100.0 * counts[0] / this.events,
+                        counts[1] == 0 ? "-" : String.format("%.1f",
+                            (double) counts[2] / counts[1])));
+        }
+
+        double total = 0.0;
+        for (long nanos : this.phaseNanos) {
+            total += this.estimate(nanos);
+        }
+        report.append(String.format("%-22s %12s %7s\n", "phase", "est. ms", "share"));
+        for (int p = 0; p < PHASES.length; p++) {
+            double nanos = this.estimate(this.phaseNanos[p]);
+            report.append(String.format("%-22s %12.3f %6.1f%%\n", PHASES[p], nanos / 1e6,
+                        total == 0 ? 0.0 : 100.0 * nanos / total));
+        }
+        return report.append(String.format("%d events, %d timed, max PQ depth %d, %.3f ms",
+                    this.events, this.sampled, this.maxQueueDepth, this.wallNanos / 1e6))
+            .toString();
+    }
+}
@@ -0,0 +1,36 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event committed once for every Event polled
+ * by the simulate method of the Simulator class. The duration of
+ * the record is the time spent in the polled Event's
+ * {@code nextEvent} method.
+ *
+ * <p>JFR instruments this class only while a recording is running.
+ * Otherwise {@code begin}, {@code end} and {@code shouldCommit} are
+ * empty and the record itself is eliminated by the JIT, so an
+ * unrecorded run pays nothing for it.
+ */
+@Name("des.EventProcessed")
+@Label("Event Processed")
+@Category("Discrete Event Simulator")
+@Description("An event polled and processed by the simulate loop")
+@StackTrace(false)
+class EventProcessedRecord extends jdk.jfr.Event {
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Simulated Time")
+    double simulatedTime;
+
+    @Label("Customer")
+    int customerId;
+
+    @Label("PQ Depth")
+    int queueDepth;
+}
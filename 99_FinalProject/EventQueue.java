@@ -0,0 +1,49 @@
+/**
+ * An EventQueue is the set of pending events of a
+ * {@link SimulationRun}, polled in the order of the
+ * {@link EventComp}: by timestamp, then by customerId. Unlike a
+ * {@link PQ}, an EventQueue is mutable, and is owned by the single
+ * run that polls it.
+ */
+interface EventQueue {
+
+    /**
+     * Returns {@code true} if there are no pending events.
+     *
+     * @return {@code true} if the queue is empty.
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the number of pending events.
+     *
+     * @return {@code int} value of the number of events.
+     */
+    int size();
+
+    /**
+     * Adds an event.
+     *
+     * @param event the event to be added
+     */
+    void add(Event event);
+
+    /**
+     * Removes and returns the first event, or returns {@code null}
+     * if the queue is empty.
+     *
+     * @return the first event.
+     */
+    Event poll();
+
+    /**
+     * Checks if the first event comes before an event with the
+     * given timestamp and customerId. An empty queue comes after
+     * every event.
+     *
+     * @param time the timestamp of the other event
+     * @param customerId the customerId of the other event
+     * @return {@code true} if the first event comes first.
+     */
+    boolean firstBefore(double time, int customerId);
+}
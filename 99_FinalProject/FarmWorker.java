@@ -0,0 +1,167 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * A FarmWorker runs batches of replications for a
+ * {@link ReplicationFarm}, on this machine or any other that the
+ * coordinator can reach:
+ *
+ * <pre>
+ * java FarmWorker [--port=N] [--attached] [--remote]
+ * </pre>
+ *
+ * <p>The worker listens on TCP port N, or on any free port if N is
+ * 0 or not given, and prints {@code LISTENING port} once it does.
+ * It only accepts connections from this machine, on the loopback
+ * interface, unless {@code --remote} asks for it to listen on every
+ * interface, for a coordinator on another host: the protocol has no
+ * authentication. With {@code --attached} it exits when its
+ * standard input closes, so a worker spawned by a coordinator dies
+ * with it.
+ *
+ * <p>A connection first sends the scenario, in the input format of
+ * Main, then any number of jobs, each answered before the next is
+ * read:
+ *
+ * <pre>
+ * SCENARIO length
+ * &lt;length bytes of input&gt;
+ * JOB id seed from count servers
+ * </pre>
+ *
+ * <p>Job id simulates replications {@code from} to
+ * {@code from + count - 1} of the scenario with the given number of
+ * human servers, replication r using substream r of a
+ * {@link RandomStream} of the given seed, just as a single JVM
+ * would. The answer is {@code RESULT id length} followed by one line
+ * {@code r totalWait served left} per replication, with the total
+ * wait written exactly, or {@code ERROR id length} and a message.
+ */
+class FarmWorker {
+
+    public static void main(String[] args) throws IOException {
+        int port = 0;
+        boolean attached = false;
+        boolean remote = false;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring(7));
+            } else if (arg.equals("--attached")) {
+                attached = true;
+            } else if (arg.equals("--remote")) {
+                remote = true;
+            }
+        }
+        if (attached) {
+            Thread parent = new Thread(FarmWorker::exitWithParent, "parent");
+            parent.setDaemon(true);
+            parent.start();
+        }
+
+        try (ServerSocket server = remote ? new ServerSocket(port)   // every interface
+                : new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            System.out.println("LISTENING " + server.getLocalPort());
+            System.out.flush();
+            while (true) {
+                Socket client = server.accept();
+                Thread connection = new Thread(() -> {
+                    try (client) {
+                        FarmWorker.serve(client.getInputStream(), client.getOutputStream());
+                    } catch (IOException e) {
+                        // the coordinator has gone
+                    }
+                }, "connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }
+    }
+
+    /**
+     * Waits for standard input to close, then exits.
+     */
+    private static void exitWithParent() {
+        try {
+            while (System.in.read() >= 0) {
+                continue;
+            }
+        } catch (IOException e) {
+            // treated as closed
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Answers the jobs of one connection until it ends.
+     *
+     * @param in the stream of requests
+     * @param out the stream of answers
+     * @throws IOException if the connection fails
+     */
+    static void serve(InputStream in, OutputStream out) throws IOException {
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(in));
+        OutputStream answers = new BufferedOutputStream(out);
+        Scenario scenario = null;
+
+        String header;
+        while ((header = SimulationDaemon.readLine(requests)) != null) {
+            String[] fields = header.trim().split("\\s+");
+            String id = fields.length > 1 ? fields[1] : "-";
+            try {
+                if (fields[0].equals("SCENARIO") && fields.length == 2) {
+                    byte[] input = new byte[Integer.parseInt(fields[1])];
+                    requests.readFully(input);
+                    scenario = Scenario.read(new Scanner(new ByteArrayInputStream(input)));
+                } else if (fields[0].equals("JOB") && fields.length == 6 && scenario != null) {
+                    FarmWorker.answer(answers, "RESULT", id, FarmWorker.replicate(
+                                scenario.withServers(Integer.parseInt(fields[5])),
+                                Long.parseLong(fields[2]), Integer.parseInt(fields[3]),
+                                Integer.parseInt(fields[4])));
+                } else if (fields[0].equals("QUIT")) {
+                    break;
+                } else {
+                    FarmWorker.answer(answers, "ERROR", id, "unexpected: " + header);
+                }
+            } catch (RuntimeException e) {
+                FarmWorker.answer(answers, "ERROR", id, String.valueOf(e));
+            }
+        }
+    }
+
+    /**
+     * Simulates a batch of replications and returns their lines.
+     */
+    private static String replicate(Scenario scenario, long seed, int from, int count) {
+        RandomStream stream = new RandomStream(seed);
+        StringBuilder lines = new StringBuilder();
+        for (int r = from; r < from + count; r++) {
+            SimulationStats stats = scenario.replicate(stream.substream(r)).stats();
+            lines.append(r).append(' ').append(stats.totalWait())
+                .append(' ').append(stats.served())
+                .append(' ').append(stats.left()).append('\n');
+        }
+        return lines.toString();
+    }
+
+    /**
+     * Writes one framed answer.
+     */
+    private static void answer(OutputStream answers, String kind, String id, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        answers.write((kind + " " + id + " " + bytes.length + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        answers.write(bytes);
+        answers.flush();
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * The original dispatch rule, backed by an index: the first server
+ * by id that can serve, and otherwise the first server by id that
+ * can queue. It makes the same choices as a {@link ScanDispatcher}
+ * in O(log k) instead of O(k).
+ */
+class FirstAvailableDispatcher extends IndexedDispatcher {
+
+    /**
+     * Constructs a FirstAvailableDispatcher over the given servers.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     */
+    FirstAvailableDispatcher(ImList<Server> servers) {
+        super(servers);
+    }
+
+    @Override
+    public int serving(ImList<Server> servers, double time) {
+        return IndexedDispatcher.serverId(this.freeTimes().leftmostAtMost(time));
+    }
+
+    @Override
+    public int queuing(ImList<Server> servers) {
+        return IndexedDispatcher.serverId(this.queueLengths()
+                .leftmostAtMost(Double.MAX_VALUE));
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * An IndexedDispatcher keeps two {@link MinTree} indexes over the
+ * servers, slotted by {@code serverId - 1}, which its subclasses
+ * query to make their choice in O(log k) for k servers:
+ *
+ * <ul>
+ * <li>{@code freeTimes} holds the next free time of every available
+ * server, so that a server can serve at time t exactly when its
+ * slot holds a value no greater than t.
+ * <li>{@code queueLengths} holds the queue length of every server
+ * whose queue has room. The self-checkouts share one queue, which
+ * is held in the slot of the first self-checkout only.
+ * </ul>
+ *
+ * <p>Only the servers of the processed and the generated event can
+ * change in a step, plus the shared self-checkout queue, so a
+ * refresh costs O(log k) as well.
+ */
+abstract class IndexedDispatcher implements Dispatcher {
+
+    private final MinTree freeTimes;
+    private final MinTree queueLengths;
+    private final boolean[] selfCheck;
+    private final int firstSelfCheck;
+
+    /**
+     * Constructs an IndexedDispatcher over the given servers.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     */
+    IndexedDispatcher(ImList<Server> servers) {
+        this.freeTimes = new MinTree(servers.size());
+        this.queueLengths = new MinTree(servers.size());
+        this.selfCheck = new boolean[servers.size()];
+        this.firstSelfCheck = QManager.getFirstSelfCheck(servers);
+
+        for (Server s : servers) {
+            this.selfCheck[s.getServerId() - 1] = s.isSelf();
+            this.update(s);
+        }
+    }
+
+    /**
+     * Returns the index of next free times.
+     *
+     * @return the {@code MinTree} of next free times.
+     */
+    MinTree freeTimes() {
+        return this.freeTimes;
+    }
+
+    /**
+     * Returns the index of queue lengths.
+     *
+     * @return the {@code MinTree} of queue lengths.
+     */
+    MinTree queueLengths() {
+        return this.queueLengths;
+    }
+
+    /**
+     * Returns the slot of the queue a server's customers join,
+     * which for a self-checkout is the slot of the first one.
+     *
+     * @param slot the slot of the server
+     * @return {@code int} slot of the queue.
+     */
+    int queueSlot(int slot) {
+        return this.selfCheck[slot] ? this.firstSelfCheck - 1 : slot;
+    }
+
+    /**
+     * Returns the serverId of a slot, or 0 for the slot -1 returned
+     * by an unsuccessful MinTree search.
+     *
+     * @param slot the slot
+     * @return integer value of the serverId
+     */
+    static int serverId(int slot) {
+        return slot + 1;
+    }
+
+    @Override
+    public Dispatcher refresh(ImList<Server> servers, Event current, Event next) {
+        boolean selfTouched = this.touch(servers, current);
+        selfTouched = this.touch(servers, next) || selfTouched;
+
+        if (selfTouched) { // the shared queue changes with any self-checkout
+            this.update(servers.get(this.firstSelfCheck - 1));
+        }
+        return this;
+    }
+
+    /**
+     * Updates the slots of the server of an event, if it has one.
+     * Returns {@code true} if that server is a self-checkout.
+     */
+    private boolean touch(ImList<Server> servers, Event event) {
+        int id = event.getServer().getServerId();
+        if (id < 1 || id > servers.size()) { // dummy server
+            return false;
+        }
+        this.update(servers.get(id - 1));
+        return this.selfCheck[id - 1];
+    }
+
+    /**
+     * Sets the slots of a server from its current state.
+     */
+    private void update(Server s) {
+        int slot = s.getServerId() - 1;
+        this.freeTimes.set(slot, s.isAvailable() 
+                ? s.getNextFree() : Double.POSITIVE_INFINITY);
+
+        if (this.queueSlot(slot) == slot) {
+            this.queueLengths.set(slot, s.canQueue() 
+                    ? s.getServerQ() : Double.POSITIVE_INFINITY);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/**
+ * An EventQueue whose pending events can be cancelled. Every event
+ * added is given a handle, the slot it is kept in, and the heap
+ * records the position of every slot, so that the event of a handle
+ * is found in O(1) and removed from the middle of the heap in
+ * O(log n). Cancelled events are gone at once, rather than left in
+ * the heap to be skipped when polled.
+ *
+ * <p>Events are ordered as in the {@link EventComp}; of two events
+ * of the same customer at the same time, a RenegeEvent comes last,
+ * so a customer whose patience runs out just as it can be served
+ * is served. A handle is valid from {@code schedule} until its event
+ * is polled or cancelled, after which it may be reused. Slots are
+ * reused through a free list, as in the {@link CompactEventQueue}.
+ */
+class IndexedEventQueue implements EventQueue {
+
+    private static final int ARITY = 4;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NONE = -1;
+
+    private Event[] events = new Event[INITIAL_CAPACITY];    // by slot
+    private int[] positions = new int[INITIAL_CAPACITY];     // in the heap, by slot
+    private int[] nextFree = new int[INITIAL_CAPACITY];      // free list, by slot
+    private int[] heap = new int[INITIAL_CAPACITY];          // slots, in heap order
+    private int freeHead = NONE;
+    private int slotsUsed = 0;   // slots ever handed out
+    private int size = 0;
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void add(Event event) {
+        this.schedule(event);
+    }
+
+    /**
+     * Adds an event and returns its handle.
+     *
+     * @param event the event
+     * @return {@code int} value of the handle of the event.
+     */
+    int schedule(Event event) {
+        int slot = this.allocate();
+        this.events[slot] = event;
+        this.siftUp(this.size++, slot);
+        return slot;
+    }
+
+    /**
+     * Removes the pending event of a handle.
+     *
+     * @param handle the handle of the event
+     * @throws IllegalArgumentException if the handle has no pending event.
+     */
+    void cancel(int handle) {
+        if (handle < 0 || handle >= this.slotsUsed || this.events[handle] == null) {
+            throw new IllegalArgumentException("No pending event of handle " + handle);
+        }
+        this.remove(this.positions[handle]);
+    }
+
+    @Override
+    public Event poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        Event event = this.events[this.heap[0]];
+        this.remove(0);
+        return event;
+    }
+
+    @Override
+    public boolean firstBefore(double time, int customerId) {
+        if (this.size == 0) {
+            return false;
+        }
+        Event head = this.events[this.heap[0]];
+        return head.getTimeStamp() < time || (head.getTimeStamp() == time
+                && head.getCustomer().getCustomerId() < customerId);
+    }
+
+    /**
+     * Removes the event at a position of the heap, moving the last
+     * event into its place and sifting that up or down.
+     */
+    private void remove(int position) {
+        int slot = this.heap[position];
+        this.events[slot] = null;
+        this.nextFree[slot] = this.freeHead;
+        this.freeHead = slot;
+
+        int last = --this.size;
+        if (position == last) {
+            return;
+        }
+        int moved = this.heap[last];
+        if (position > 0 && this.before(moved, this.heap[(position - 1) / ARITY])) {
+            this.siftUp(position, moved);
+        } else {
+            this.siftDown(position, moved, last);
+        }
+    }
+
+    /**
+     * Places a slot at the hole at position i or above it.
+     */
+    private void siftUp(int i, int slot) {
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            if (!this.before(slot, this.heap[parent])) {
+                break;
+            }
+            this.place(i, this.heap[parent]);
+            i = parent;
+        }
+        this.place(i, slot);
+    }
+
+    /**
+     * Places a slot at the hole at position i or below it, in a
+     * heap of the given size.
+     */
+    private void siftDown(int i, int slot, int size) {
+        while (true) {
+            int child = ARITY * i + 1;
+            if (child >= size) {
+                break;
+            }
+            int end = Math.min(child + ARITY, size);
+            int least = child;
+            for (int c = child + 1; c < end; c++) {
+                if (this.before(this.heap[c], this.heap[least])) {
+                    least = c;
+                }
+            }
+            if (!this.before(this.heap[least], slot)) {
+                break;
+            }
+            this.place(i, this.heap[least]);
+            i = least;
+        }
+        this.place(i, slot);
+    }
+
+    private void place(int position, int slot) {
+        this.heap[position] = slot;
+        this.positions[slot] = position;
+    }
+
+    /**
+     * Compares the events in two slots by timestamp, then by
+     * customerId, then putting a RenegeEvent last.
+     */
+    private boolean before(int slot1, int slot2) {
+        Event e1 = this.events[slot1];
+        Event e2 = this.events[slot2];
+        double t1 = e1.getTimeStamp();
+        double t2 = e2.getTimeStamp();
+        if (t1 != t2) {
+            return t1 < t2;
+        }
+        int c1 = e1.getCustomer().getCustomerId();
+        int c2 = e2.getCustomer().getCustomerId();
+        if (c1 != c2) {
+            return c1 < c2;
+        }
+        return !(e1 instanceof RenegeEvent) && e2 instanceof RenegeEvent;
+    }
+
+    /**
+     * Returns a free slot, taken from the free list if there is
+     * one, growing the arrays if they are full.
+     */
+    private int allocate() {
+        if (this.freeHead != NONE) {
+            int slot = this.freeHead;
+            this.freeHead = this.nextFree[slot];
+            return slot;
+        }
+        if (this.slotsUsed == this.events.length) {   // every slot is pending
+            int capacity = 2 * this.events.length;
+            this.events = Arrays.copyOf(this.events, capacity);
+            this.positions = Arrays.copyOf(this.positions, capacity);
+            this.nextFree = Arrays.copyOf(this.nextFree, capacity);
+            this.heap = Arrays.copyOf(this.heap, capacity);
+        }
+        return this.slotsUsed++;
+    }
+}
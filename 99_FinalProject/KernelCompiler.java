@@ -0,0 +1,510 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * The KernelCompiler class consists of only static methods, which
+ * generate a {@link ReplicationKernel} specialised to a number of
+ * servers at runtime. The source of the kernel is written with the
+ * number of servers folded in: each server's workload is a local
+ * variable rather than an array element, and the search for the
+ * first idle server is an unrolled chain of comparisons, with
+ * neither a loop nor a bounds check left. It is compiled in memory
+ * with the system Java compiler and defined as a hidden class.
+ *
+ * <p>Kernels are cached by number of servers, so a sweep over
+ * scenarios of the same shape compiles once. The cache holds them
+ * for the life of the JVM, so a compiled kernel is never unloaded;
+ * there are at most {@code MAX_SERVERS} of them. Where no compiler
+ * is available, as in a bare runtime image, where compilation fails,
+ * or where there are too many servers to unroll, the kernel of
+ * {@code ReplicationKernel.load} is used instead. A compiled kernel
+ * does the same arithmetic in the same order as the scalar kernel,
+ * so its results are identical.
+ *
+ * <p>It likewise generates a {@link ShopEngine} specialised to the
+ * shape of a shop of human servers only: the number of servers, the
+ * qmax and whether the servers rest. Each server's state is a few
+ * local variables, the dispatch of an arriving customer is an
+ * unrolled chain of comparisons, and every kind of event at every
+ * server is a case of its own, so none of the {@code isSelf}, qmax or
+ * rest-time checks of the generic event loop of {@link SimulationRun}
+ * is left, nor any Event object or ImList of Servers. Engines are
+ * cached by shape for the life of the JVM, one per shape asked for;
+ * where one cannot be compiled, or there are more than
+ * {@code MAX_ENGINE_SERVERS} servers, the generic event loop is used
+ * instead. Shops with self-checkouts always are.
+ */
+class KernelCompiler {
+
+    static final int MAX_SERVERS = 32;   // most servers unrolled
+    static final int MAX_ENGINE_SERVERS = 12;   // beyond which the unrolled dispatch
+                                                // loses to the dispatcher's MinTree
+
+    private static final String KERNEL_NAME = "CompiledReplicationKernel";
+    private static final String ENGINE_NAME = "CompiledShopEngine";
+    private static final Map<Integer, ReplicationKernel> CACHE =
+        new ConcurrentHashMap<Integer, ReplicationKernel>();
+    private static final Map<String, Optional<ShopEngine>> ENGINES =   // by shape, empty
+        new ConcurrentHashMap<String, Optional<ShopEngine>>();         // if not compiled
+
+    private KernelCompiler() {
+    }
+
+    /**
+     * Returns the kernel specialised to the given number of
+     * servers, compiling it the first time it is asked for, or the
+     * kernel of {@code ReplicationKernel.load} if it cannot be.
+     *
+     * @param servers the number of servers
+     * @return the specialised {@code ReplicationKernel}.
+     */
+    static ReplicationKernel kernel(int servers) {
+        return CACHE.computeIfAbsent(servers, KernelCompiler::compile);
+    }
+
+    /**
+     * Returns the ShopEngine specialised to the given shape of shop,
+     * compiling it the first time it is asked for, or null if it
+     * cannot be, in which case the shop is left to the generic event
+     * loop.
+     *
+     * @param servers the number of human servers
+     * @param qmax the maximum queue length
+     * @param resting whether any server rests
+     * @return the specialised {@code ShopEngine}, or null.
+     */
+    static ShopEngine engine(int servers, int qmax, boolean resting) {
+        int queue = Math.max(qmax, 0);   // any qmax below 1 queues nobody
+        return ENGINES.computeIfAbsent(servers + "/" + queue + "/" + resting,
+                shape -> servers < 1 || servers > MAX_ENGINE_SERVERS ? Optional.empty()
+                : Optional.ofNullable((ShopEngine) KernelCompiler.define(ENGINE_NAME,
+                            KernelCompiler.engineSource(servers, queue, resting))))
+            .orElse(null);
+    }
+
+    /**
+     * Compiles the kernel of the given number of servers and defines
+     * it as a hidden class.
+     */
+    private static ReplicationKernel compile(int servers) {
+        if (servers < 1 || servers > MAX_SERVERS) {
+            return ReplicationKernel.load();
+        }
+        Object kernel = KernelCompiler.define(KERNEL_NAME, KernelCompiler.source(servers));
+        return kernel == null ? ReplicationKernel.load() : (ReplicationKernel) kernel;
+    }
+
+    /**
+     * Compiles the given source of one class in memory, defines the
+     * class as a hidden class and returns a new instance of it, or
+     * returns null if there is no compiler or either step fails.
+     */
+    private static Object define(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JavaFileObject input = new SimpleJavaFileObject(
+                URI.create("string:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaFileManager files = new ForwardingJavaFileManager<JavaFileManager>(
+                compiler.getStandardFileManager(null, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name,
+                    JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(
+                        URI.create("bytes:///" + name + ".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return bytes;
+                    }
+                };
+            }
+        };
+        List<String> options = Arrays.asList("-classpath",
+                System.getProperty("java.class.path"), "-proc:none", "-g:none");
+
+        try {
+            boolean compiled = compiler.getTask(null, files, diagnostic -> { }, options, null,
+                    List.of(input)).call();
+            if (!compiled) {
+                return null;
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                .defineHiddenClass(bytes.toByteArray(), true);
+            return lookup.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the source of the kernel of the given number of
+     * servers: the loop of the scalar kernel, with workload j held
+     * in the local variable wj.
+     */
+    static String source(int servers) {
+        StringBuilder s = new StringBuilder();
+        s.append("class ").append(KERNEL_NAME).append(" implements ReplicationKernel {\n")
+            .append("    public void totalWaits(double[] arrivals, int servers,\n")
+            .append("            double[] serviceTimes, double[] totalWaits) {\n")
+            .append("        if (servers != ").append(servers).append(") {\n")
+            .append("            throw new IllegalArgumentException(\"Compiled for ")
+            .append(servers).append(" servers, not \" + servers);\n")
+            .append("        }\n")
+            .append("        int replications = totalWaits.length;\n")
+            .append("        for (int r = 0; r < replications; r++) {\n");
+        for (int j = 0; j < servers; j++) {
+            s.append("            double w").append(j).append(" = 0.0;\n");
+        }
+        s.append("            double total = 0.0;\n")
+            .append("            for (int i = 0, k = r; i < arrivals.length;")
+            .append(" i++, k += replications) {\n")
+            .append("                double a = arrivals[i];\n")
+            .append("                double s = serviceTimes[k];\n")
+            .append("                ");
+        for (int j = 0; j < servers; j++) {
+            s.append("if (w").append(j).append(" <= a) {\n")
+                .append("                    w").append(j).append(" = a + s;\n")
+                .append("                } else ");
+        }
+        s.append("{\n")
+            .append("                    total += w0 - a;\n")
+            .append("                    w0 += s;\n")
+            .append("                }\n")
+            .append("            }\n")
+            .append("            totalWaits[r] += total;\n")
+            .append("        }\n")
+            .append("    }\n")
+            .append("    public String name() {\n")
+            .append("        return \"compiled for ").append(servers).append(" servers\";\n")
+            .append("    }\n")
+            .append("}\n");
+        return s.toString();
+    }
+
+    /**
+     * Returns the source of the ShopEngine of the given shape. Server
+     * j is held in the local variables fj, aj and qj, its next free
+     * time, availability and queue length, and its rest time supplier
+     * in rj if any server rests. Each customer has at most one pending
+     * event, so the pending events are a heap of customers, keyed by
+     * the time of their event and then by customer as in the
+     * EventComp, with the kind of every event folded together with its
+     * server into one case of a switch: 4j to be served by server j,
+     * 4j + 1 to start waiting at it, 4j + 2 to wait on silently and
+     * 4j + 3 to be done, and 4 times the number of servers to leave.
+     * With a qmax of 0 nobody waits, and the waiting cases are left
+     * out, as are the rest times of servers that never rest.
+     */
+    static String engineSource(int servers, int qmax, boolean resting) {
+        StringBuilder s = new StringBuilder();
+        s.append("import java.util.function.IntFunction;\n")
+            .append("import java.util.function.Supplier;\n")
+            .append("\n")
+            .append("class ").append(ENGINE_NAME).append(" implements ShopEngine {\n")
+            .append("    public SimulationStats run(ArrivalTimes arrivalTimes,\n")
+            .append("            IntFunction<Supplier<Double>> serviceTimes,")
+            .append(" ImList<Server> serverList,\n")
+            .append("            TraceWriter output) {\n")
+            .append("        if (serverList.size() != ").append(servers).append(") {\n")
+            .append("            throw new IllegalArgumentException(\"Compiled for ")
+            .append(servers).append(" servers, not \" + serverList.size());\n")
+            .append("        }\n")
+            .append("        int n = arrivalTimes.size();\n")
+            .append("        Customer[] customers = new Customer[n];\n")
+            .append("        double[] time = new double[n];\n")
+            .append("        int[] kind = new int[n];\n")
+            .append("        int[] heap = new int[n];\n")
+            .append("        int size = 0;\n")
+            .append("        int next = 0;\n")
+            .append("        double total = 0.0;\n")
+            .append("        int served = 0;\n")
+            .append("        int left = 0;\n");
+        for (int j = 0; j < servers; j++) {
+            s.append("        Server s").append(j).append(" = serverList.get(").append(j)
+                .append(");\n");
+            if (resting) {
+                s.append("        Supplier<Double> r").append(j).append(" = s").append(j)
+                    .append(".getRestTime();\n");
+            }
+            s.append("        double f").append(j).append(" = 0.0;\n")
+                .append("        boolean a").append(j).append(" = true;\n");
+            if (qmax > 0) {
+                s.append("        int q").append(j).append(" = 0;\n");
+            }
+        }
+
+        s.append("        while (next < n || size > 0) {\n")
+            .append("            if (next < n && (size == 0\n")
+            .append("                    || !firstBefore(time, heap[0],")
+            .append(" arrivalTimes.get(next), next))) {\n")
+            .append("                int c = next++;\n")
+            .append("                double t = arrivalTimes.get(c);\n")
+            .append("                customers[c] = new Customer(c + 1, t,")
+            .append(" serviceTimes.apply(c + 1));\n")
+            .append("                if (output != null) {\n")
+            .append("                    output.arrive(t, c + 1);\n")
+            .append("                }\n")
+            .append("                ");
+        for (int j = 0; j < servers; j++) {
+            s.append("if (a").append(j).append(" && t >= f").append(j).append(") {\n")
+                .append("                    a").append(j).append(" = false;\n")
+                .append("                    f").append(j).append(" = t;\n")
+                .append("                    kind[c] = ").append(4 * j).append(";\n")
+                .append("                } else ");
+        }
+        for (int j = 0; j < servers && qmax > 0; j++) {
+            s.append("if (q").append(j).append(" < ").append(qmax).append(") {\n")
+                .append("                    q").append(j).append("++;\n")
+                .append("                    kind[c] = ").append(4 * j + 1).append(";\n")
+                .append("                } else ");
+        }
+        s.append("{\n")
+            .append("                    kind[c] = ").append(4 * servers).append(";\n")
+            .append("                }\n")
+            .append("                time[c] = t;\n")
+            .append("                size = push(heap, size, time, c);\n")
+            .append("                continue;\n")
+            .append("            }\n")
+            .append("\n")
+            .append("            int c = heap[0];\n")
+            .append("            double t = time[c];\n")
+            .append("            switch (kind[c]) {\n");
+        for (int j = 0; j < servers; j++) {
+            s.append("                case ").append(4 * j).append(":\n")
+                .append("                    if (output != null) {\n")
+                .append("                        output.serve(t, c + 1, s").append(j)
+                .append(");\n")
+                .append("                    }\n")
+                .append("                    total += t - customers[c].getArrivalTime();\n")
+                .append("                    f").append(j)
+                .append(" = t + customers[c].getServiceTime();\n")
+                .append("                    a").append(j).append(" = true;\n")
+                .append("                    time[c] = f").append(j).append(";\n")
+                .append("                    kind[c] = ").append(4 * j + 3).append(";\n")
+                .append("                    siftDown(heap, size, time);\n")
+                .append("                    break;\n");
+            if (qmax > 0) {
+                s.append("                case ").append(4 * j + 1).append(":\n")
+                    .append("                    if (output != null) {\n")
+                    .append("                        output.waitAt(t, c + 1, s").append(j)
+                    .append(");\n")
+                    .append("                    }\n")
+                    .append("                    // and on as a silent wait\n")
+                    .append("                case ").append(4 * j + 2).append(":\n")
+                    .append("                    if (a").append(j).append(" && t >= f")
+                    .append(j).append(") {\n")
+                    .append("                        a").append(j).append(" = false;\n")
+                    .append("                        f").append(j).append(" = t;\n")
+                    .append("                        q").append(j).append("--;\n")
+                    .append("                        kind[c] = ").append(4 * j)
+                    .append(";   // at the same time, so still first\n")
+                    .append("                    } else {\n")
+                    .append("                        time[c] = f").append(j).append(";\n")
+                    .append("                        kind[c] = ").append(4 * j + 2)
+                    .append(";\n")
+                    .append("                        siftDown(heap, size, time);\n")
+                    .append("                    }\n")
+                    .append("                    break;\n");
+            }
+            s.append("                case ").append(4 * j + 3).append(":\n")
+                .append("                    if (output != null) {\n")
+                .append("                        output.done(t, c + 1, s").append(j)
+                .append(");\n")
+                .append("                    }\n")
+                .append("                    served++;\n");
+            if (resting) {
+                s.append("                    f").append(j).append(" = f").append(j)
+                    .append(" + r").append(j).append(".get();\n");
+            }
+            s.append("                    size = pop(heap, size, time);\n")
+                .append("                    break;\n");
+        }
+        s.append("                default:\n")
+            .append("                    if (output != null) {\n")
+            .append("                        output.leave(t, c + 1);\n")
+            .append("                    }\n")
+            .append("                    left++;\n")
+            .append("                    size = pop(heap, size, time);\n")
+            .append("            }\n")
+            .append("        }\n")
+            .append("        return new SimulationStats(total, served, left);\n")
+            .append("    }\n")
+            .append("\n")
+            .append("    private static boolean firstBefore(double[] time, int c, double t,")
+            .append(" int d) {\n")
+            .append("        return time[c] < t || time[c] == t && c < d;\n")
+            .append("    }\n")
+            .append("\n")
+            .append("    private static int push(int[] heap, int size, double[] time,")
+            .append(" int c) {\n")
+            .append("        int i = size;\n")
+            .append("        while (i > 0 && firstBefore(time, c, time[heap[(i - 1) / 2]],")
+            .append(" heap[(i - 1) / 2])) {\n")
+            .append("            heap[i] = heap[(i - 1) / 2];\n")
+            .append("            i = (i - 1) / 2;\n")
+            .append("        }\n")
+            .append("        heap[i] = c;\n")
+            .append("        return size + 1;\n")
+            .append("    }\n")
+            .append("\n")
+            .append("    private static void siftDown(int[] heap, int size, double[] time) {\n")
+            .append("        int c = heap[0];\n")
+            .append("        int i = 0;\n")
+            .append("        while (2 * i + 1 < size) {\n")
+            .append("            int child = 2 * i + 1;\n")
+            .append("            if (child + 1 < size && firstBefore(time, heap[child + 1],\n")
+            .append("                        time[heap[child]], heap[child])) {\n")
+            .append("                child++;\n")
+            .append("            }\n")
+            .append("            if (!firstBefore(time, heap[child], time[c], c)) {\n")
+            .append("                break;\n")
+            .append("            }\n")
+            .append("            heap[i] = heap[child];\n")
+            .append("            i = child;\n")
+            .append("        }\n")
+            .append("        heap[i] = c;\n")
+            .append("    }\n")
+            .append("\n")
+            .append("    private static int pop(int[] heap, int size, double[] time) {\n")
+            .append("        heap[0] = heap[size - 1];\n")
+            .append("        siftDown(heap, size - 1, time);\n")
+            .append("        return size - 1;\n")
+            .append("    }\n")
+            .append("\n")
+            .append("    public String name() {\n")
+            .append("        return \"compiled for ").append(servers).append(" servers, qmax ")
+            .append(qmax).append(resting ? ", resting" : "").append("\";\n")
+            .append("    }\n")
+            .append("}\n");
+        return s.toString();
+    }
+
+    /**
+     * Reads a scenario in the input format of the Main class, with
+     * the Sampler of service times given as the second argument, if
+     * any, such as {@code exp:1.0}, and checks and times the compiled
+     * code against the generic code over a number of replications,
+     * given as the first argument and defaulting to 10000.
+     *
+     * <p>If the scenario is first-come-first-served, the kernel of
+     * {@code ReplicationKernel.load} and the compiled kernel are timed
+     * over the service times of all replications, three times each,
+     * checking that their results agree. If it has human servers
+     * only, the generic event loop of every replication and its
+     * compiled ShopEngine are timed, three times each, checking that
+     * their outputs are the same line for line. Compiling is timed
+     * apart.
+     *
+     * @param args the optional number of replications and service Sampler
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Scanner sc = new Scanner(System.in);
+        Scenario scenario = Scenario.read(sc);
+        sc.close();
+        if (args.length > 1) {
+            scenario = scenario.withServiceTimes(Sampler.parse(args[1]));
+        }
+        if (scenario.isFirstComeFirstServed()) {
+            KernelCompiler.compareKernels(scenario, n);
+        }
+        KernelCompiler.compareEngines(scenario, n);
+    }
+
+    /**
+     * Times the kernel of {@code ReplicationKernel.load} and the
+     * compiled kernel over n replications of a first-come-first-served
+     * scenario, checking that their results agree.
+     */
+    private static void compareKernels(Scenario scenario, int n) {
+        ImList<Double> arrivalTimes = scenario.getArrivalTimes();
+        int customers = arrivalTimes.size();
+        double[] arrivals = new double[customers];
+        double[] serviceTimes = new double[customers * n];
+        RandomStream stream = new RandomStream(2030L);
+        for (int i = 0; i < customers; i++) {
+            arrivals[i] = arrivalTimes.get(i);
+            for (int r = 0; r < n; r++) {
+                serviceTimes[i * n + r] = scenario.getServiceTimes().draw(stream.next());
+            }
+        }
+
+        long start = System.nanoTime();
+        ReplicationKernel compiled = KernelCompiler.kernel(scenario.getServers());
+        System.out.printf("compiling %s: %.1f ms%n", compiled.name(),
+                (System.nanoTime() - start) / 1e6);
+        ReplicationKernel generic = ReplicationKernel.load();
+        for (int round = 1; round <= 3; round++) {
+            double[] expected = new double[n];
+            double[] actual = new double[n];
+            start = System.nanoTime();
+            generic.totalWaits(arrivals, scenario.getServers(), serviceTimes, expected);
+            long middle = System.nanoTime();
+            compiled.totalWaits(arrivals, scenario.getServers(), serviceTimes, actual);
+            long end = System.nanoTime();
+            System.out.printf("round %d: %s %.1f ms, %s %.1f ms, %s%n", round,
+                    generic.name(), (middle - start) / 1e6, compiled.name(),
+                    (end - middle) / 1e6,
+                    Arrays.equals(expected, actual) ? "identical" : "DIFFERENT");
+        }
+    }
+
+    /**
+     * Times the generic event loop and the compiled ShopEngine over n
+     * replications of a scenario, checking that the outputs of every
+     * replication are the same.
+     */
+    private static void compareEngines(Scenario scenario, int n) {
+        RandomStream stream = new RandomStream(2030L);
+        long start = System.nanoTime();
+        if (scenario.simulator(stream).simulateCompiled() == null) {
+            System.out.println("No compiled engine applies");
+            return;
+        }
+        System.out.printf("compiling the engine: %.1f ms%n",
+                (System.nanoTime() - start) / 1e6);
+        for (int round = 1; round <= 3; round++) {
+            long generic = 0L;
+            long compiled = 0L;
+            int different = 0;
+            for (int r = 0; r < n; r++) {
+                Simulator sim = scenario.simulator(stream.substream(r));
+                long begin = System.nanoTime();
+                String expected = sim.simulateRun(RunOptions.none()).first();
+                long middle = System.nanoTime();
+                String actual = sim.simulateCompiled();
+                compiled += System.nanoTime() - middle;
+                generic += middle - begin;
+                if (!expected.equals(actual)) {
+                    different++;
+                }
+            }
+            System.out.printf("round %d: event loop %.1f ms, engine %.1f ms, %s%n", round,
+                    generic / 1e6, compiled / 1e6,
+                    different == 0 ? "identical" : different + " DIFFERENT");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Least-recently-busy dispatch: of the servers that can serve, the
+ * one that has been free the longest, that is the one with the
+ * earliest next free time, ties going to the lowest id. Customers
+ * who cannot be served straight away queue at the first server by
+ * id that can queue.
+ */
+class LeastRecentlyBusyDispatcher extends IndexedDispatcher {
+
+    /**
+     * Constructs a LeastRecentlyBusyDispatcher over the given servers.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     */
+    LeastRecentlyBusyDispatcher(ImList<Server> servers) {
+        super(servers);
+    }
+
+    @Override
+    public int serving(ImList<Server> servers, double time) {
+        int slot = this.freeTimes().argMin();
+        if (slot < 0 || this.freeTimes().get(slot) > time) {
+            return 0;
+        }
+        return IndexedDispatcher.serverId(slot);
+    }
+
+    @Override
+    public int queuing(ImList<Server> servers) {
+        return IndexedDispatcher.serverId(this.queueLengths()
+                .leftmostAtMost(Double.MAX_VALUE));
+    }
+}
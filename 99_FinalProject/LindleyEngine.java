@@ -0,0 +1,280 @@
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * A LindleyEngine simulates the shops that reduce to a plain
+ * first-come-first-served multi-server queue: human servers only,
+ * none of which ever rest, a qmax no smaller than the number of
+ * customers so that nobody ever leaves, arrival times in
+ * non-decreasing order and the default dispatch policy. In such a
+ * shop every customer who cannot be served on arrival waits at
+ * server 1, and is served there, in order of arrival, as soon as
+ * it is done with the customer before; so the start of service of
+ * each customer follows from the next free times of the servers by
+ * the Lindley recursion {@code start = max(arrival, nextFree)}.
+ *
+ * <p>The engine computes the start, server and done time of every
+ * customer in one loop over the arrival times, keeping only a
+ * {@code double} next free time per server and the indices of the
+ * customers waiting at server 1. The trace is then written by
+ * merging the arrive, serve and done lines of all customers in the
+ * order of the EventComp, exactly as the event-driven simulation
+ * would have polled them, straight into a {@link TraceWriter}.
+ * Service times are drawn in the same order as the ServeEvents
+ * would have drawn them, so both produce the same output for the
+ * same suppliers.
+ */
+class LindleyEngine {
+
+    private static final int ARRIVE = 0;   // rank of the lines of one customer
+    private static final int SERVE = 1;
+    private static final int DONE = 2;
+
+    private final ImList<Server> serverList;
+    private final Customer[] customers;
+    private final double[] arrival;
+    private final double[] start;
+    private final double[] done;
+    private final int[] serverOf;      // index of the server of each customer
+    private final boolean[] waited;    // whether each customer waited
+    private final int[] startOrder;    // customers in the order they start
+    private int started = 0;
+    private double totalWaitingTime = 0.0;
+
+    /**
+     * Constructs a LindleyEngine and simulates the whole run. Only
+     * to be used if {@code applies} holds.
+     *
+     * @param arrivalTimes the customer arrival times
+     * @param serviceTimes the supplier of service times of each customerId
+     * @param serverList the initial list of servers
+     */
+    LindleyEngine(ArrivalTimes arrivalTimes, IntFunction<Supplier<Double>> serviceTimes,
+            ImList<Server> serverList) {
+        int n = arrivalTimes.size();
+        this.serverList = serverList;
+        this.customers = new Customer[n];
+        this.arrival = new double[n];
+        this.start = new double[n];
+        this.done = new double[n];
+        this.serverOf = new int[n];
+        this.waited = new boolean[n];
+        this.startOrder = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            this.arrival[i] = arrivalTimes.get(i);
+            this.customers[i] = new Customer(i + 1, this.arrival[i],
+                    serviceTimes.apply(i + 1));
+        }
+        this.simulate();
+    }
+
+    /**
+     * Checks if a shop can be simulated by a LindleyEngine.
+     *
+     * @param serverList the initial list of servers and self-checkouts
+     * @param qmax the maximum queue length
+     * @param arrivalTimes the customer arrival times
+     * @return {@code true} if the shop reduces to a FCFS queue.
+     */
+    static boolean applies(ImList<Server> serverList, int qmax, ArrivalTimes arrivalTimes) {
+        if (serverList.isEmpty() || !LindleyEngine.nobodyLeaves(qmax, arrivalTimes)) {
+            return false;
+        }
+        for (Server server : serverList) {
+            if (server.isSelf() || !server.isRestless()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the arrival times are in non-decreasing order and
+     * qmax is no smaller than the number of customers, so that in a
+     * shop of human servers nobody ever leaves.
+     *
+     * @param qmax the maximum queue length
+     * @param arrivalTimes the customer arrival times
+     * @return {@code true} if nobody can leave.
+     */
+    static boolean nobodyLeaves(int qmax, ArrivalTimes arrivalTimes) {
+        return qmax >= arrivalTimes.size() && arrivalTimes.isSorted();
+    }
+
+    /**
+     * Computes the start, server and done time of every customer.
+     * Before each arrival, the customers waiting at server 1 who
+     * are due before it, in the order of the EventComp, are started
+     * first; the arriving customer is then served by the first idle
+     * server, or joins the queue of server 1.
+     */
+    private void simulate() {
+        int n = this.arrival.length;
+        double[] nextFree = new double[this.serverList.size()];
+        MinTree freeTimes = new MinTree(nextFree.length);
+        for (int j = 0; j < nextFree.length; j++) {
+            freeTimes.set(j, 0.0);
+        }
+        int[] queue = new int[n];   // customers waiting at server 1
+        int head = 0;
+        int tail = 0;
+
+        for (int i = 0; i <= n; i++) {
+            double time = i < n ? this.arrival[i] : Double.POSITIVE_INFINITY;
+            while (head < tail && nextFree[0] <= time) { // queued customers have lower ids
+                int c = queue[head++];
+                nextFree[0] = this.begin(c, 0, nextFree[0]);
+                freeTimes.set(0, nextFree[0]);
+            }
+            if (i == n) {
+                break;
+            }
+
+            int j = freeTimes.leftmostAtMost(time);
+            if (j >= 0) {
+                nextFree[j] = this.begin(i, j, time);
+                freeTimes.set(j, nextFree[j]);
+            } else {
+                this.waited[i] = true;
+                queue[tail++] = i;
+            }
+        }
+    }
+
+    /**
+     * Starts serving a customer, and returns the time it is done.
+     */
+    private double begin(int c, int server, double time) {
+        this.start[c] = time;
+        this.serverOf[c] = server;
+        this.done[c] = time + this.customers[c].getServiceTime(); // serviceTime invoked
+        this.startOrder[this.started++] = c;
+        this.totalWaitingTime += time - this.arrival[c];
+        return this.done[c];
+    }
+
+    /**
+     * Returns the String representation of the entire simulation,
+     * identical to that of the event-driven simulation.
+     *
+     * @return the trace followed by the statistics
+     */
+    String trace() {
+        int n = this.arrival.length;
+        TraceWriter output = new TraceWriter();
+        int[] pending = new int[this.serverList.size()]; // heap of customers not yet done
+        int pendingSize = 0;
+        int nextArrive = 0;
+        int nextServe = 0;
+
+        while (nextArrive < n || nextServe < n || pendingSize > 0) {
+            int kind = -1;
+            int c = -1;
+            if (nextArrive < n) {
+                kind = ARRIVE;
+                c = nextArrive;
+            }
+            if (nextServe < n) {
+                int s = this.startOrder[nextServe];
+                if (kind < 0 || this.precedes(this.start[s], s, SERVE, this.arrival[c], c, kind)) {
+                    kind = SERVE;
+                    c = s;
+                }
+            }
+            if (pendingSize > 0) {
+                int d = pending[0];
+                if (kind < 0 || this.precedes(this.done[d], d, DONE,
+                            kind == ARRIVE ? this.arrival[c] : this.start[c], c, kind)) {
+                    kind = DONE;
+                    c = d;
+                }
+            }
+
+            if (kind == ARRIVE) {
+                output.arrive(this.arrival[c], c + 1);
+                if (this.waited[c]) {
+                    output.waitAt(this.arrival[c], c + 1, this.serverList.get(0));
+                }
+                nextArrive++;
+            } else if (kind == SERVE) {
+                output.serve(this.start[c], c + 1, this.serverList.get(this.serverOf[c]));
+                pendingSize = this.push(pending, pendingSize, c);
+                nextServe++;
+            } else {
+                output.done(this.done[c], c + 1, this.serverList.get(this.serverOf[c]));
+                pendingSize = this.pop(pending, pendingSize);
+            }
+        }
+        return output.statistics(this.statistics()).toString();
+    }
+
+    /**
+     * Returns the statistics of the simulation.
+     *
+     * @return the {@code SimulationStats} of the entire simulation
+     */
+    SimulationStats statistics() {
+        return new SimulationStats(this.totalWaitingTime, this.started, 0);
+    }
+
+    /**
+     * Checks if one line precedes another: by time, then by
+     * customer, then by its rank among the lines of one customer.
+     */
+    private boolean precedes(double t1, int c1, int rank1, double t2, int c2, int rank2) {
+        if (t1 != t2) {
+            return t1 < t2;
+        }
+        if (c1 != c2) {
+            return c1 < c2;
+        }
+        return rank1 < rank2;
+    }
+
+    /**
+     * Checks if one customer is done before another.
+     */
+    private boolean doneBefore(int c1, int c2) {
+        return this.precedes(this.done[c1], c1, DONE, this.done[c2], c2, DONE);
+    }
+
+    /**
+     * Adds a customer to the heap of customers not yet done, and
+     * returns the new size of the heap.
+     */
+    private int push(int[] heap, int size, int c) {
+        int i = size;
+        while (i > 0 && this.doneBefore(c, heap[(i - 1) / 2])) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = c;
+        return size + 1;
+    }
+
+    /**
+     * Removes the first customer from the heap of customers not yet
+     * done, and returns the new size of the heap.
+     */
+    private int pop(int[] heap, int size) {
+        int last = heap[size - 1];
+        int n = size - 1;
+        int i = 0;
+        while (2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if (child + 1 < n && this.doneBefore(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!this.doneBefore(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (n > 0) {
+            heap[i] = last;
+        }
+        return n;
+    }
+}
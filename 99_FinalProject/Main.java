@@ -1,34 +1,217 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.Random;
-import java.util.stream.Stream;
 
 class Main {
-    private static final Random RNG_REST = new Random(3L);
-    private static final Random RNG_REST_PERIOD = new Random(4L);
-    private static final double SERVER_REST_RATE = 0.1;
+    static final double SERVER_REST_RATE = 0.1;
+    private static final long CACHE_BYTES = 256L << 20;
+    private static final int CACHE_ENTRIES = 64;
+    private static final Supplier<Double> DEFAULT_SERVICE = () -> 1.0;
+    private static final Map<Path, ResultCache> CACHES =    // by directory, shared by
+        new ConcurrentHashMap<Path, ResultCache>();         // the jobs of a daemon
 
-    static double genRestPeriod() {
-        return -Math.log(RNG_REST_PERIOD.nextDouble()) / SERVER_REST_RATE;
+    static double genRestPeriod(Random rngRestPeriod) {
+        return -Math.log(rngRestPeriod.nextDouble()) / SERVER_REST_RATE;
     }
 
-    public static void main(String[] args) {
-        Scanner sc = new Scanner(System.in);
+    public static void main(String[] args) throws IOException {
+        System.out.println(Main.run(args, System.in));
+    }
+
+    /**
+     * Runs one job: the input is read from the trace file named in
+     * args, or else from in, and the output that main prints is
+     * returned. Every job starts from freshly seeded random number
+     * generators, so jobs run one after another or side by side in
+     * one JVM give the same output as separate JVMs.
+     */
+    static String run(String[] args, InputStream in) throws IOException {
+        Supplier<Double> serviceTimes = DEFAULT_SERVICE;
+        Sampler service = Sampler.constant(1.0);
+        for (String arg : args) {
+            if (arg.startsWith("--service=")) {  // such as empirical:times.txt
+                service = Sampler.parse(arg.substring(10));
+                serviceTimes = serviceTimes(service);
+            }
+        }
+        String[] files = Arrays.stream(args)
+            .filter(arg -> !arg.startsWith("--"))
+            .toArray(String[]::new);
+
+        TraceFile trace = files.length > 0 // a binary trace, mapped rather than parsed
+            ? TraceFile.read(Paths.get(files[0]))
+            : Main.read(new Scanner(in));
+        Simulator sim = new Simulator(trace.getServers(), trace.getSelfChecks(),
+                trace.getQmax(), trace.getArrivalTimes(), serviceTimes,
+                restTimes(trace.getProbRest()));
+
+        String policy = "first";
+        String cache = null;
+        TraceTail tail = null;
+        int publishInterval = SimulationMonitor.PUBLISH_INTERVAL;
+        Abandonment abandonment = Abandonment.none();
+        String abandonmentSpec = "";
+        for (String arg : args) {
+            if (arg.startsWith("--policy=")) {
+                policy = arg.substring(9);
+                sim = sim.withPolicy(DispatchPolicy.named(policy, 5L));
+            } else if (arg.startsWith("--cache=")) {
+                cache = arg.substring(8);
+            } else if (arg.startsWith("--publish=")) {
+                publishInterval = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--tail=")) {
+                tail = new TraceTail(Integer.parseInt(arg.substring(7)));
+            } else if (arg.startsWith("--patience=")) {
+                abandonment = abandonment.withPatience(
+                        patienceTimes(Double.parseDouble(arg.substring(11))));
+                abandonmentSpec += arg;
+            } else if (arg.startsWith("--balk=")) {
+                abandonment = abandonment.withBalking(Integer.parseInt(arg.substring(7)));
+                abandonmentSpec += arg;
+            }
+        }
+        if (abandonment.isEnabled()) {
+            sim = sim.withAbandonment(abandonment);
+        }
+        if (Arrays.asList(args).contains("--off-heap")) {
+            sim = sim.withOffHeapEvents();
+        }
+        if (Arrays.asList(args).contains("--compact")) {
+            sim = sim.withCompactEvents();
+        }
+        if (Arrays.asList(args).contains("--compiled")) {
+            sim = sim.withCompiledEngine();
+        }
+        SimulationMonitor monitor = null;
+        if (Arrays.asList(args).contains("--jmx")) {
+            monitor = new SimulationMonitor(publishInterval).attach(tail).register();
+            sim = sim.withMonitor(monitor);
+        }
+        try {
+            boolean timeStats = Arrays.asList(args).contains("--time-stats");
+            boolean ipa = Arrays.asList(args).contains("--ipa");
+            boolean profiled = Arrays.asList(args).contains("--profile");
+            if (timeStats || ipa || profiled || tail != null) {
+                if (cache != null) {     // only the plain output is cached
+                    throw new IllegalArgumentException("--cache cannot be combined with "
+                            + "--tail, --time-stats, --ipa or --profile");
+                }
+                RunOptions options = RunOptions.none();  // one run, read off by each
+                if (tail != null) {                      // analysis asked for
+                    options = options.withTail(tail);
+                }
+                if (timeStats) {
+                    options = options.withTimeWeighted();
+                }
+                if (ipa) {
+                    options = options.withPerturbation(
+                            service.isScaleFamily() ? service.mean() : Double.NaN,
+                            trace.getProbRest() / SERVER_REST_RATE);
+                }
+                if (profiled) {
+                    options = options.withProfile();
+                }
+                Pair<String, SimulationRun> run = sim.simulateRun(options);
+                if (profiled) {          // on stderr, so the output stays comparable
+                    System.err.println(run.second().profile());
+                }
+                String output = run.first();
+                if (timeStats) {
+                    output += "\n" + run.second().timeWeighted();
+                }
+                if (ipa) {
+                    output += "\n" + run.second().perturbation();
+                }
+                return output;
+            }
+            if (cache == null) {
+                return sim.simulate();
+            }
+            CacheKey key = new CacheKey("Main")
+                .add(trace.getServers())
+                .add(trace.getSelfChecks())
+                .add(trace.getQmax())
+                .add(trace.getProbRest())
+                .add(trace.getArrivalTimes())
+                .add(service.cacheKey())
+                .add(Sampler.rest(trace.getProbRest(), SERVER_REST_RATE).spec())
+                .add(3L).add(4L)            // seeds of rngRest and rngRestPeriod
+                .add(policy).add(5L);
+            if (abandonment.isEnabled()) {  // only then, so that other keys stay the same
+                key.add(abandonmentSpec).add(7L);    // seed of rngPatience
+            }
+            if (serviceTimes != DEFAULT_SERVICE) { // seed of rngService
+                key.add(6L);
+            }
+            return Main.cache(Paths.get(cache)).get(key.hex(), sim::simulate);
+        } finally {         // so that the next job of a daemon can register its own
+            if (monitor != null) {
+                monitor.unregister();
+            }
+        }
+    }
+
+    /**
+     * Returns the ResultCache of a directory, opening it the first
+     * time it is asked for, so that the jobs of one JVM share its
+     * bookkeeping and the outputs it keeps in memory.
+     */
+    static ResultCache cache(Path directory) throws IOException {
+        try {
+            return CACHES.computeIfAbsent(directory.toAbsolutePath().normalize(), path -> {
+                try {
+                    return new ResultCache(path, CACHE_BYTES, CACHE_ENTRIES);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static Supplier<Double> restTimes(double probRest) {
+        Random rngRest = new Random(3L);
+        Random rngRestPeriod = new Random(4L);
+        return probRest == 0 ? Server.NO_REST : () ->
+            rngRest.nextDouble() < probRest ? genRestPeriod(rngRestPeriod) : 0.0;
+    }
+
+    static Supplier<Double> serviceTimes(Sampler service) {
+        Random rngService = new Random(6L);
+        return () -> service.draw(rngService.nextDouble());
+    }
+
+    static IntFunction<Supplier<Double>> patienceTimes(double mean) {
+        RandomStream rngPatience = new RandomStream(7L);  // apart from the policy's 5L
+        return customerId -> {        // the same patience whenever the customer waits
+            RandomStream own = rngPatience.substream(customerId);
+            return () -> -Math.log1p(-own.next()) * mean;
+        };
+    }
+
+    static TraceFile read(Scanner sc) {
         ImList<Double> arrivalTimes = new ImList<Double>();
-        Supplier<Double> serviceTimes = () -> 1.0;
         int numOfServers = sc.nextInt();
         int numOfSelfChecks = sc.nextInt();
         int qmax = sc.nextInt();
         double probRest = sc.nextDouble();
-        Supplier<Double> restTimes = () ->
-            RNG_REST.nextDouble() < probRest ? genRestPeriod() : 0.0;
 
         while (sc.hasNextDouble()) {
             arrivalTimes = arrivalTimes.add(sc.nextDouble());
         }
-
-        Simulator sim = new Simulator(numOfServers, numOfSelfChecks, qmax, arrivalTimes, serviceTimes, restTimes);
-        System.out.println(sim.simulate());
         sc.close();
+
+        return TraceFile.of(numOfServers, numOfSelfChecks, qmax, probRest,
+                ArrivalTimes.of(arrivalTimes));
     }
 }
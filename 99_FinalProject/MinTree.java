@@ -0,0 +1,85 @@
+import java.util.Arrays;
+
+/**
+ * A MinTree is a segment tree over a fixed number of {@code double}
+ * slots that keeps the minimum of every range of slots. Setting a
+ * slot costs O(log n); the minimum is read in O(1), and the lowest
+ * slot holding the minimum, or the lowest slot holding a value no
+ * greater than a bound, are found in O(log n). Empty slots hold
+ * positive infinity.
+ *
+ * <p>A MinTree is mutable, and is owned by the single
+ * {@link IndexedDispatcher} that maintains it.
+ */
+class MinTree {
+
+    private final int leaves;
+    private final double[] tree;
+
+    /**
+     * Constructs a MinTree of the given number of slots, all empty.
+     *
+     * @param size the number of slots
+     */
+    MinTree(int size) {
+        int n = 1;
+        while (n < size) {
+            n <<= 1;
+        }
+        this.leaves = n;
+        this.tree = new double[2 * n];
+        Arrays.fill(this.tree, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Sets a slot to a value.
+     *
+     * @param slot the index of the slot
+     * @param value the new value
+     */
+    void set(int slot, double value) {
+        int i = slot + this.leaves;
+        this.tree[i] = value;
+        for (i >>= 1; i >= 1; i >>= 1) {
+            this.tree[i] = Math.min(this.tree[2 * i], this.tree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns the value of a slot.
+     *
+     * @param slot the index of the slot
+     * @return {@code double} value of the slot.
+     */
+    double get(int slot) {
+        return this.tree[slot + this.leaves];
+    }
+
+    /**
+     * Returns the lowest slot holding the minimum value, or -1 if
+     * every slot is empty.
+     *
+     * @return {@code int} index of the slot.
+     */
+    int argMin() {
+        return this.leftmostAtMost(this.tree[1]);
+    }
+
+    /**
+     * Returns the lowest slot holding a value no greater than the
+     * given bound, or -1 if there is none.
+     *
+     * @param bound the upper bound
+     * @return {@code int} index of the slot.
+     */
+    int leftmostAtMost(double bound) {
+        if (this.tree[1] > bound || this.tree[1] == Double.POSITIVE_INFINITY) {
+            return -1;
+        }
+        int i = 1;
+        while (i < this.leaves) {
+            i = this.tree[2 * i] <= bound ? 2 * i : 2 * i + 1;
+        }
+        return i - this.leaves;
+    }
+}
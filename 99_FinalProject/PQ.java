@@ -50,6 +50,15 @@ public class PQ<E> {
         return this.pq.isEmpty();
     }
 
+    /**
+     * Returns the number of elements in this priority queue.
+     *
+     * @return the number of elements in this priority queue
+     */
+    public int size() {
+        return this.pq.size();
+    }
+
     /**
      * Inserts the specified element into this priority queue.
      *
@@ -62,6 +71,16 @@ public class PQ<E> {
         return copy;
     }
 
+    /**
+     * Retrieves, but does not remove, the head of this queue,
+     * or returns {@code null} if this queue is empty.
+     *
+     * @return the head of this queue
+     */
+    public E peek() {
+        return this.pq.peek();
+    }
+
     /**
      * Retrieves and removes the head of this queue,
      * or returns {@code null} if this queue is empty.
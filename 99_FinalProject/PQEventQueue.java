@@ -0,0 +1,38 @@
+/**
+ * The EventQueue of Event objects held in an immutable {@link PQ},
+ * as the Simulator has always used.
+ */
+class PQEventQueue implements EventQueue {
+
+    private PQ<Event> pq = new PQ<Event>(new EventComp());
+
+    @Override
+    public boolean isEmpty() {
+        return this.pq.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return this.pq.size();
+    }
+
+    @Override
+    public void add(Event event) {
+        this.pq = this.pq.add(event);
+    }
+
+    @Override
+    public Event poll() {
+        Pair<Event, PQ<Event>> polled = this.pq.poll();
+        this.pq = polled.second();
+        return polled.first();
+    }
+
+    @Override
+    public boolean firstBefore(double time, int customerId) {
+        Event head = this.pq.peek();
+        return head != null && (head.getTimeStamp() < time
+                || (head.getTimeStamp() == time
+                    && head.getCustomer().getCustomerId() < customerId));
+    }
+}
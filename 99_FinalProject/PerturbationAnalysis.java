@@ -0,0 +1,152 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A PerturbationAnalysis estimates, from a single run, how the
+ * average wait would change with the mean service time and with the
+ * mean rest time, by infinitesimal perturbation analysis (IPA).
+ *
+ * <p>The Samplers of this project are scale families in their
+ * means: multiplying the mean service time by {@code 1 + h}
+ * multiplies every service time drawn from the same uniforms by
+ * {@code 1 + h}, and likewise for rest times. So a service time S
+ * has derivative {@code S / meanService}, and a rest time R
+ * derivative {@code R / meanRest}. As long as a small enough
+ * perturbation leaves the order of the events as it was, every
+ * timestamp is a sum of arrival, service and rest times, and its
+ * derivative follows the same recursion the Events do:
+ *
+ * <ul>
+ * <li>a server's next free time is set to the time it starts
+ * serving, then to that plus the service time by the ServeEvent,
+ * and then has the rest time added by the DoneEvent;
+ * <li>a customer served on arrival starts at its arrival time,
+ * whose derivative is 0; one who waits starts at the next free time
+ * of the server its last WaitEvent was scheduled for;
+ * <li>the wait of a customer is its start minus its arrival, so the
+ * derivative of the total wait is the sum of those of the starts of
+ * the customers served.
+ * </ul>
+ *
+ * <p>Dividing by the number served, which does not change under a
+ * small perturbation, gives the derivatives of the average wait.
+ * These are unbiased where the average wait is continuous in the
+ * means, which a qmax that turns customers away can break. A mean
+ * of 0 has no scale to perturb, and its derivative is NaN, as is
+ * that of a mean given as NaN because its Sampler is not a scale
+ * family in it.
+ *
+ * <p>A PerturbationAnalysis is fed by a {@link SimulationRun}, like
+ * a {@link TimeWeightedStats}, and is owned by that run.
+ */
+public class PerturbationAnalysis {
+
+    private final double meanService;
+    private final double meanRest;
+    private final double[] free;              // next free time of each server
+    private final double[] freeByService;     // and its two derivatives
+    private final double[] freeByRest;
+    private final Map<Integer, double[]> pending =   // derivatives of the timestamp
+        new HashMap<Integer, double[]>();             // of each customer's next event
+    private double waitByService = 0.0;
+    private double waitByRest = 0.0;
+    private int served = 0;
+
+    /**
+     * Constructs a PerturbationAnalysis of a shop.
+     *
+     * @param servers the number of servers and self-checkouts
+     * @param meanService the mean service time
+     * @param meanRest the mean rest time
+     */
+    public PerturbationAnalysis(int servers, double meanService, double meanRest) {
+        this.meanService = meanService;
+        this.meanRest = meanRest;
+        this.free = new double[servers];
+        this.freeByService = new double[servers];
+        this.freeByRest = new double[servers];
+    }
+
+    /**
+     * Propagates the derivatives through one polled event.
+     *
+     * @param current the event polled
+     * @param next the event it generated
+     * @param after the list of servers after the event
+     */
+    void update(Event current, Event next, ImList<Server> after) {
+        int customerId = current.getCustomer().getCustomerId();
+
+        if (current instanceof ServeEvent) {
+            double[] start = this.pending.remove(customerId);
+            int i = current.getServer().getServerId() - 1;
+            double service = next.getTimeStamp() - current.getTimeStamp();
+            this.free[i] = next.getTimeStamp();
+            this.freeByService[i] = start[0] + service / this.meanService;
+            this.freeByRest[i] = start[1];
+            this.waitByService += start[0];
+            this.waitByRest += start[1];
+            this.served++;
+        } else if (current instanceof DoneEvent) {
+            int i = current.getServer().getServerId() - 1;
+            double rest = after.get(i).getNextFree() - this.free[i];
+            this.free[i] += rest;
+            this.freeByRest[i] += rest == 0 ? 0.0 : rest / this.meanRest;
+        } else if (next instanceof ServeEvent) {       // served on arrival or after waiting
+            double[] start = current instanceof ArriveEvent
+                ? new double[2] : this.pending.get(customerId);
+            int i = next.getServer().getServerId() - 1;
+            this.free[i] = next.getTimeStamp();
+            this.freeByService[i] = start[0];
+            this.freeByRest[i] = start[1];
+            this.pending.put(customerId, start);
+        } else if (next instanceof WaitEvent) {
+            if (current instanceof ArriveEvent) {      // waits from its arrival
+                this.pending.put(customerId, new double[2]);
+            } else {                                   // until the server is next free
+                int i = next.getServer().getServerId() - 1;
+                this.pending.put(customerId,
+                        new double[] {this.freeByService[i], this.freeByRest[i]});
+            }
+        }
+    }
+
+    /**
+     * Returns the derivative of the average wait with respect to
+     * the mean service time.
+     *
+     * @return {@code double} value of d(average wait)/d(mean service).
+     */
+    public double serviceSensitivity() {
+        return this.meanService == 0 ? Double.NaN : this.average(this.waitByService);
+    }
+
+    /**
+     * Returns the derivative of the average wait with respect to
+     * the mean rest time.
+     *
+     * @return {@code double} value of d(average wait)/d(mean rest).
+     */
+    public double restSensitivity() {
+        return this.meanRest == 0 ? Double.NaN : this.average(this.waitByRest);
+    }
+
+    /**
+     * Divides a total by the number served, or returns 0 if nobody
+     * was served.
+     */
+    private double average(double total) {
+        return this.served == 0 ? 0.0 : total / this.served;
+    }
+
+    /**
+     * Returns both derivatives of the average wait.
+     *
+     * @return the String representation of the derivatives.
+     */
+    @Override
+    public String toString() {
+        return String.format("d(avg wait)/d(mean service) %.5f d(avg wait)/d(mean rest) %.5f",
+                this.serviceSensitivity(), this.restSensitivity());
+    }
+}
@@ -0,0 +1,140 @@
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The ProcessScheduler coordinates a set of {@link SimProcess}
+ * objects, each of which runs its sequential body on a thread of
+ * its own. Exactly one thread runs at any moment: either the
+ * scheduler, or the single process it has resumed. A process
+ * hands control back whenever it holds for some simulated time or
+ * blocks on a {@link Counter}, and the scheduler then resumes the
+ * next pending activation.
+ *
+ * <p>Activations are ordered in the same way {@link EventComp}
+ * orders events, by time and then by the id of the process, so a
+ * run is deterministic no matter how the underlying threads are
+ * scheduled by the JVM.
+ *
+ * <p>Processes run on virtual threads when the JVM provides them,
+ * which makes thousands of live processes cheap. On older JVMs
+ * small-stack daemon platform threads are used instead.
+ */
+public class ProcessScheduler {
+
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+    private static final ThreadFactory THREADS = threadFactory();
+
+    private final PriorityQueue<Activation> agenda =
+        new PriorityQueue<Activation>(Comparator
+                .comparingDouble((Activation a) -> a.time)
+                .thenComparingInt(a -> a.process.getProcessId()));
+    private final Semaphore control = new Semaphore(0);
+    private double clock = 0.0;
+    private Throwable failure;
+
+    /**
+     * An entry in the agenda: a process and the time at which
+     * it is due to be resumed.
+     */
+    private static final class Activation {
+        private final double time;
+        private final SimProcess process;
+
+        private Activation(double time, SimProcess process) {
+            this.time = time;
+            this.process = process;
+        }
+    }
+
+    /**
+     * Returns the current simulated time.
+     *
+     * @return {@code double} value of the simulated clock.
+     */
+    public double now() {
+        return this.clock;
+    }
+
+    /**
+     * Schedules a process to be started or resumed at the given
+     * time.
+     *
+     * @param process the process to activate
+     * @param time the time of activation
+     * @return this scheduler, for chaining.
+     */
+    public ProcessScheduler schedule(SimProcess process, double time) {
+        process.attach(this);
+        this.agenda.add(new Activation(time, process));
+        return this;
+    }
+
+    /**
+     * Runs all processes until the agenda is empty. A process that
+     * is blocked on a Counter when the agenda runs dry is never
+     * resumed.
+     *
+     * @return {@code double} value of the simulated time at the end.
+     * @throws IllegalStateException if the body of any process throws.
+     */
+    public double run() {
+        while (!this.agenda.isEmpty()) {
+            Activation next = this.agenda.poll();
+            this.clock = next.time;
+
+            if (next.process.isStarted()) {
+                next.process.resume();
+            } else {
+                next.process.start(THREADS);
+            }
+            this.control.acquireUninterruptibly(); // wait for the process to yield
+
+            if (this.failure != null) {
+                throw new IllegalStateException("Process " +
+                        next.process.getProcessId() + " failed", this.failure);
+            }
+        }
+        return this.clock;
+    }
+
+    /**
+     * Hands control back to the scheduler. Called by a process
+     * thread when it holds, blocks or terminates.
+     */
+    void yieldControl() {
+        this.control.release();
+    }
+
+    /**
+     * Records the failure of a process, to be rethrown by
+     * {@code run}.
+     *
+     * @param cause what the process threw
+     */
+    void fail(Throwable cause) {
+        this.failure = cause;
+    }
+
+    /**
+     * Returns a factory for virtual threads if the running JVM
+     * supports them, and a factory for small-stack daemon platform
+     * threads otherwise.
+     */
+    private static ThreadFactory threadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder")
+                .getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return r -> {
+                Thread t = new Thread(null, r, "sim-process", PLATFORM_STACK_SIZE);
+                t.setDaemon(true);
+                return t;
+            };
+        }
+    }
+}
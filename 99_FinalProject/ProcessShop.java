@@ -0,0 +1,80 @@
+/**
+ * The shared state of a process-oriented shop simulation: the
+ * Counters customers compete for, in the order of the ids of the
+ * servers they stand for, together with the trace written so far
+ * and the running statistics.
+ *
+ * <p>Like a Counter, a ProcessShop is only ever accessed by the one
+ * process the {@link ProcessScheduler} is running.
+ */
+class ProcessShop {
+
+    private final ImList<Counter> counters;
+    private final TraceWriter trace = new TraceWriter();
+    private int servedNumber = 0;
+    private int leftNumber = 0;
+    private double totalWaitingTime = 0.0;
+
+    /**
+     * Constructs a ProcessShop over the given Counters.
+     *
+     * @param counters the Counters, ordered by server id
+     */
+    ProcessShop(ImList<Counter> counters) {
+        this.counters = counters;
+    }
+
+    /**
+     * Returns the first Counter with a unit free at the given time,
+     * or null if there is none.
+     *
+     * @param time the time to check
+     * @return the first {@code Counter} able to serve.
+     */
+    Counter firstServing(double time) {
+        for (Counter c : this.counters) {
+            if (c.firstFree(time) >= 0) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first Counter whose queue can be joined, or null
+     * if there is none.
+     *
+     * @return the first {@code Counter} able to queue.
+     */
+    Counter firstQueuing() {
+        for (Counter c : this.counters) {
+            if (c.canQueue()) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the String representation of an Event to the trace.
+     *
+     * @param event the Event to record
+     */
+    void record(Event event) {
+        this.trace.event(event);
+        this.totalWaitingTime += event.waitAdd();
+        this.servedNumber += event.add();
+        this.leftNumber += event.left();
+    }
+
+    /**
+     * Returns the trace followed by the statistics, in the format of
+     * the simulate method of the Simulator class.
+     *
+     * @return the String representation of the entire simulation.
+     */
+    String output() {
+        return this.trace + new SimulationStats(this.totalWaitingTime,
+                this.servedNumber, this.leftNumber).toString();
+    }
+}
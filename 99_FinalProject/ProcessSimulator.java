@@ -0,0 +1,88 @@
+import java.util.function.Supplier;
+
+/**
+ * A process-oriented front end to the shop simulation. Instead of
+ * chaining Event subclasses through a PQ, every customer is a
+ * {@link CustomerProcess} running sequential code on its own
+ * (virtual, where available) thread, and every human server, as
+ * well as the bank of self-checkouts, is a {@link Counter}. The
+ * {@link ProcessScheduler} resumes processes in the order the
+ * {@link EventComp} would poll their events, so the output is the
+ * same as that of {@link Simulator#simulate()} for the same inputs.
+ */
+public class ProcessSimulator {
+
+    private final int numOfServers;
+    private final int qmax;
+    private final int selfChecks;
+    private final ImList<Double> arrivalTimes;
+    private final Supplier<Double> serviceTimes;
+    private final Supplier<Double> restTimes;
+
+    /**
+     * Constructs the ProcessSimulator.
+     *
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length 
+     * @param arrivalTimes the list of customer arrival times
+     * @param serviceTimes the supplier of service times
+     * @param restTimes the supplier of rest times
+     */
+    ProcessSimulator(int servers, int selfChecks, int qmax, ImList<Double> arrivalTimes,
+            Supplier<Double> serviceTimes, Supplier<Double> restTimes) {
+        this.numOfServers = servers;
+        this.qmax = qmax;
+        this.selfChecks = selfChecks;
+        this.serviceTimes = serviceTimes;
+        this.arrivalTimes = arrivalTimes;
+        this.restTimes = restTimes;
+    }
+
+    /**
+     * Returns the Counters of the shop: one per human server,
+     * followed by a single Counter for all self-checkouts, which
+     * share one queue.
+     *
+     * @return the list of Counters
+     */
+    private ImList<Counter> makeCounters() {
+        ImList<Counter> counters = new ImList<Counter>();
+        for (int i = 1; i <= this.numOfServers; i++) {
+            counters = counters.add(new Counter(new ImList<Server>()
+                        .add(new Server(i, this.qmax, this.restTimes)),
+                        this.qmax, this.restTimes));
+        }
+
+        ImList<Server> selfCheckList = new ImList<Server>();
+        for (int j = this.numOfServers + 1; j <= this.numOfServers + 
+                this.selfChecks; j++) {
+            selfCheckList = selfCheckList.add(new SelfCheck(j, this.qmax));
+        }
+        if (!selfCheckList.isEmpty()) {
+            counters = counters.add(new Counter(selfCheckList, this.qmax, () -> 0.0));
+        }
+
+        return counters;
+    }
+
+    /**
+     * Runs every customer's process to completion.
+     *
+     * @return the String representation of the entire Simulation
+     */
+    public String simulate() {
+        ProcessShop shop = new ProcessShop(this.makeCounters());
+        ProcessScheduler scheduler = new ProcessScheduler();
+
+        int custCounter = 1;
+        for (Double a : this.arrivalTimes) {
+            Customer customer = new Customer(custCounter, a, this.serviceTimes);
+            scheduler.schedule(new CustomerProcess(customer, shop), a);
+            custCounter++;
+        }
+
+        scheduler.run();
+        return shop.output();
+    }
+}
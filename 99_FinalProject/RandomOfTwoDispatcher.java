@@ -0,0 +1,70 @@
+import java.util.Random;
+
+/**
+ * Random-of-two dispatch. Two distinct servers are sampled at
+ * random. A customer is served by whichever of the two can serve,
+ * and if neither can, by the first server by id that can, so that
+ * no server sits idle while a customer waits. A customer who cannot
+ * be served queues at whichever of the two has the shorter queue
+ * with room, and if both are full, at the shortest queue with room
+ * in the shop.
+ */
+class RandomOfTwoDispatcher extends IndexedDispatcher {
+
+    private final Random rng;
+    private final int size;
+
+    /**
+     * Constructs a RandomOfTwoDispatcher over the given servers.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     * @param seed the seed of the sampling
+     */
+    RandomOfTwoDispatcher(ImList<Server> servers, long seed) {
+        super(servers);
+        this.rng = new Random(seed);
+        this.size = servers.size();
+    }
+
+    @Override
+    public int serving(ImList<Server> servers, double time) {
+        int i = this.rng.nextInt(this.size);
+        int j = this.other(i);
+
+        if (this.freeTimes().get(Math.min(i, j)) <= time) {
+            return IndexedDispatcher.serverId(Math.min(i, j));
+        }
+        if (this.freeTimes().get(Math.max(i, j)) <= time) {
+            return IndexedDispatcher.serverId(Math.max(i, j));
+        }
+        return IndexedDispatcher.serverId(this.freeTimes().leftmostAtMost(time));
+    }
+
+    @Override
+    public int queuing(ImList<Server> servers) {
+        int sample = this.rng.nextInt(this.size);
+        int i = this.queueSlot(sample);
+        int j = this.queueSlot(this.other(sample));
+        double qi = this.queueLengths().get(i);
+        double qj = this.queueLengths().get(j);
+
+        if (qi == Double.POSITIVE_INFINITY && qj == Double.POSITIVE_INFINITY) {
+            return IndexedDispatcher.serverId(this.queueLengths().argMin());
+        }
+        if (qi < qj || (qi == qj && i < j)) {
+            return IndexedDispatcher.serverId(i);
+        }
+        return IndexedDispatcher.serverId(j);
+    }
+
+    /**
+     * Samples a slot other than the given one, if there is one.
+     */
+    private int other(int slot) {
+        if (this.size == 1) {
+            return slot;
+        }
+        int j = this.rng.nextInt(this.size - 1);
+        return j >= slot ? j + 1 : j;
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.SplittableRandom;
+
+/**
+ * A RandomStream is a seeded source of uniform random numbers that
+ * can be split into independent, reproducible substreams by key:
+ * the substream of a given key of a given stream is always the
+ * same, no matter what has been drawn from the parent.
+ *
+ * <p>An antithetic stream returns {@code 1 - u} for every {@code u}
+ * its non-antithetic twin with the same seed returns.
+ */
+public class RandomStream implements UniformStream {
+
+    private static final double ULP = 0x1p-53;
+
+    private final long seed;
+    private final boolean antithetic;
+    private final SplittableRandom rng;
+
+    /**
+     * Constructs a RandomStream.
+     *
+     * @param seed the seed of the stream
+     * @param antithetic whether to return antithetic numbers
+     */
+    public RandomStream(long seed, boolean antithetic) {
+        this.seed = seed;
+        this.antithetic = antithetic;
+        this.rng = new SplittableRandom(seed);
+    }
+
+    /**
+     * Constructs a non-antithetic RandomStream.
+     *
+     * @param seed the seed of the stream
+     */
+    public RandomStream(long seed) {
+        this(seed, false);
+    }
+
+    /**
+     * Returns the seed of the stream.
+     *
+     * @return {@code long} value of the seed.
+     */
+    long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Returns whether the stream returns antithetic numbers.
+     *
+     * @return {@code true} if the stream is antithetic.
+     */
+    boolean isAntithetic() {
+        return this.antithetic;
+    }
+
+    /**
+     * Returns the next uniform random number in [0, 1).
+     *
+     * @return {@code double} value of the random number.
+     */
+    @Override
+    public double next() {
+        double u = this.rng.nextDouble();
+        return this.antithetic ? 1.0 - ULP - u : u;
+    }
+
+    /**
+     * Returns the substream of the given key.
+     *
+     * @param key the key of the substream
+     * @return the substream, antithetic if this stream is.
+     */
+    @Override
+    public RandomStream substream(long key) {
+        return new RandomStream(RandomStream.mix(this.seed, key), this.antithetic);
+    }
+
+    /**
+     * Returns the antithetic twin of this stream, as it was when it
+     * was constructed.
+     *
+     * @return the antithetic twin.
+     */
+    public RandomStream antithetic() {
+        return new RandomStream(this.seed, !this.antithetic);
+    }
+
+    /**
+     * Mixes a seed and a key into a new seed, with the finaliser of
+     * the 64-bit MurmurHash3.
+     */
+    private static long mix(long seed, long key) {
+        long z = seed + (key + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * The {@code RenegeEvent} class extends the Event class
+ * and provides for the implementation of a waiting Customer
+ * reneging: leaving the queue it waits in once its patience
+ * has run out. A RenegeEvent is scheduled when the customer
+ * starts to wait, and cancelled if it is served first.
+ */
+public class RenegeEvent extends Event {
+
+    /**
+     * Constructs a RenegeEvent with all parameters specified.
+     *
+     * @param timeStamp the time the customer's patience runs out
+     * @param customer the waiting customer
+     * @param server the server or self-checkout waited at
+     */
+    RenegeEvent(double timeStamp, Customer customer, Server server) {
+        super(timeStamp, customer, server);
+    }
+
+    /**
+     * Returns a String representation of the RenegeEvent.
+     */
+    @Override
+    public String toString() {
+        return super.toString() + "reneges at " + super.getServer() + "\n";
+    }
+
+    /**
+     * RenegeEvent's implementation of the nextEvent method. The
+     * customer leaves the queue it waits in: that of its human
+     * server, or the one shared by all self-checkout counters.
+     * Returns itself, as a LeaveEvent does, with the updated list
+     * of servers.
+     *
+     * @param input the input list of servers
+     * @return A {@code Pair<Event, ImList<Server>>} pair object.
+     */
+    @Override
+    public Pair<Event, ImList<Server>> nextEvent(ImList<Server> input) {
+        int serverId = super.getServer().getServerId();
+        Server currentServer = input.get(serverId - 1);
+
+        if (currentServer.isSelf()) { // All SC queues updated
+            return new Pair<Event, ImList<Server>>(this, QManager.minusOneAllQ(input));
+        }
+        return new Pair<Event, ImList<Server>>(this,
+                input.set(serverId - 1, currentServer.minusOneServerQ()));
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * The outcome of one replication of a {@link Scenario}: its
+ * statistics together with the mean service and rest times it
+ * actually drew, which serve as control variates.
+ */
+public class Replication {
+
+    private final SimulationStats stats;
+    private final double meanService;
+    private final double meanRest;
+
+    /**
+     * Constructs a Replication with all parameters specified.
+     *
+     * @param stats the statistics of the replication
+     * @param meanService the mean of the service times drawn
+     * @param meanRest the mean of the rest times drawn
+     */
+    Replication(SimulationStats stats, double meanService, double meanRest) {
+        this.stats = stats;
+        this.meanService = meanService;
+        this.meanRest = meanRest;
+    }
+
+    /**
+     * Returns the statistics of the replication.
+     *
+     * @return the {@code SimulationStats} of the replication.
+     */
+    public SimulationStats stats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns the mean of the service times drawn.
+     *
+     * @return {@code double} value of the mean service time drawn.
+     */
+    public double meanService() {
+        return this.meanService;
+    }
+
+    /**
+     * Returns the mean of the rest times drawn.
+     *
+     * @return {@code double} value of the mean rest time drawn.
+     */
+    public double meanRest() {
+        return this.meanRest;
+    }
+}
@@ -0,0 +1,403 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * A ReplicationFarm coordinates the replications of a scenario, or
+ * of a sweep over its number of servers, across {@link FarmWorker}
+ * processes, so that neither the throughput nor the heap of one JVM
+ * limits an experiment:
+ *
+ * <pre>
+ * java ReplicationFarm [--workers=N | --hosts=HOST:PORT,...] [--replications=R]
+ *     [--batch=B] [--seed=S] [--servers=K[-M]] [--timeout=SECONDS] &lt; input.in
+ * </pre>
+ *
+ * <p>The replications are split into jobs of B consecutive
+ * replications each. One thread per worker connects to it, sends
+ * the scenario, and then takes jobs from a shared queue one at a
+ * time, so faster workers take more jobs. A job whose worker fails,
+ * times out or answers with an error is put back for another
+ * worker, up to {@code MAX_ATTEMPTS} times; a worker whose
+ * connection fails is given up on. Replication r always uses
+ * substream r of the seed, whichever worker runs it, so the merged
+ * statistics are those a single JVM would have produced.
+ *
+ * <p>With {@code --workers=N}, N workers are spawned on this machine
+ * by {@code ProcessBuilder} and destroyed when the farm is closed.
+ */
+public class ReplicationFarm implements AutoCloseable {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final byte[] scenario;
+    private final List<InetSocketAddress> workers;
+    private final int timeoutMillis;
+    private final List<Process> processes = new ArrayList<Process>();
+
+    /**
+     * Constructs a ReplicationFarm over running workers.
+     *
+     * @param scenario the scenario, in the input format of Main
+     * @param workers the addresses of the workers
+     * @param timeoutMillis how long to wait for a connection or an
+     *     answer before giving up on a worker, 0 for ever
+     */
+    public ReplicationFarm(byte[] scenario, List<InetSocketAddress> workers,
+            int timeoutMillis) {
+        this.scenario = scenario;
+        this.workers = workers;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Spawns workers on this machine, with the same JVM and class
+     * path as this one, and returns a ReplicationFarm over them.
+     *
+     * @param scenario the scenario, in the input format of Main
+     * @param n the number of workers
+     * @param timeoutMillis how long to wait for an answer, 0 for ever
+     * @return the {@code ReplicationFarm} of the local workers.
+     * @throws IOException if a worker cannot be started
+     */
+    public static ReplicationFarm local(byte[] scenario, int n, int timeoutMillis)
+            throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ReplicationFarm farm = new ReplicationFarm(scenario,
+                new ArrayList<InetSocketAddress>(), timeoutMillis);
+        try {
+            for (int i = 0; i < n; i++) {
+                Process process = new ProcessBuilder(java, "-cp",
+                        System.getProperty("java.class.path"), "FarmWorker", "--port=0",
+                        "--attached")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+                farm.processes.add(process);
+                String line = new BufferedReader(new InputStreamReader(
+                            process.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+                if (line == null || !line.startsWith("LISTENING ")) {
+                    throw new IOException("worker " + i + " did not start: " + line);
+                }
+                farm.workers.add(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                            Integer.parseInt(line.substring(10))));  // where it listens
+            }
+        } catch (IOException e) {
+            farm.close();
+            throw e;
+        }
+        return farm;
+    }
+
+    /**
+     * Runs replications 0 to n - 1 of the scenario with each of the
+     * given numbers of servers, and returns the statistics of every
+     * replication, in order, by number of servers.
+     *
+     * @param seed the seed of the stream replication r uses substream r of
+     * @param n the number of replications of each number of servers
+     * @param batch the number of replications in one job
+     * @param servers the numbers of servers to sweep over
+     * @return the {@code SimulationStats} of the replications.
+     * @throws IOException if a job fails {@code MAX_ATTEMPTS} times
+     *     or every worker has failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Map<Integer, SimulationStats[]> sweep(long seed, int n, int batch, int[] servers)
+            throws IOException, InterruptedException {
+        if (this.workers.isEmpty()) {
+            throw new IOException("no workers");
+        }
+        Work work = new Work(this.workers.size());
+        int id = 0;
+        for (int k : servers) {
+            work.results.put(k, new SimulationStats[n]);
+            for (int from = 0; from < n; from += batch) {
+                work.add(new Job(id++, k, from, Math.min(batch, n - from)));
+            }
+        }
+
+        for (InetSocketAddress address : this.workers) {
+            Thread thread = new Thread(() -> this.drive(address, seed, work),
+                    "farm " + address);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        work.await();
+        return work.results;
+    }
+
+    /**
+     * Connects to one worker and runs jobs on it until there are
+     * none left, the work has failed, or the worker does.
+     */
+    private void drive(InetSocketAddress address, long seed, Work work) {
+        Job job = null;
+        try (Socket socket = new Socket()) {
+            socket.connect(address, this.timeoutMillis);
+            socket.setSoTimeout(this.timeoutMillis);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            out.write(("SCENARIO " + this.scenario.length + "\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(this.scenario);
+
+            while ((job = work.take()) != null) {
+                out.write(String.format("JOB %d %d %d %d %d\n", job.id, seed, job.from,
+                            job.count, job.servers).getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                String header = SimulationDaemon.readLine(in);
+                if (header == null) {
+                    throw new IOException("connection closed");
+                }
+                String[] fields = header.split(" ");
+                byte[] body = new byte[Integer.parseInt(fields[2])];
+                in.readFully(body);
+                String text = new String(body, StandardCharsets.UTF_8);
+
+                if (fields[0].equals("RESULT") && fields[1].equals(String.valueOf(job.id))) {
+                    work.done(job, ReplicationFarm.parse(text, job.count));
+                } else {
+                    work.retry(job, address + ": " + text);
+                }
+                job = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (job != null) {
+                work.retry(job, address + ": " + e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            work.lost();
+        }
+    }
+
+    /**
+     * Parses the lines {@code r totalWait served left} of a result.
+     */
+    private static SimulationStats[] parse(String text, int count) {
+        String[] lines = text.split("\n");
+        if (lines.length != count) {
+            throw new IllegalArgumentException("expected " + count + " replications");
+        }
+        SimulationStats[] stats = new SimulationStats[count];
+        for (int i = 0; i < count; i++) {
+            String[] fields = lines[i].split(" ");
+            stats[i] = new SimulationStats(Double.parseDouble(fields[1]),
+                    Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+        }
+        return stats;
+    }
+
+    /**
+     * Destroys the workers spawned by {@code local}, if any.
+     */
+    @Override
+    public void close() {
+        for (Process process : this.processes) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * A batch of consecutive replications with one number of
+     * servers, and the number of times it has been tried.
+     */
+    private static class Job {
+        private final int id;
+        private final int servers;
+        private final int from;
+        private final int count;
+        private int attempts = 0;
+
+        Job(int id, int servers, int from, int count) {
+            this.id = id;
+            this.servers = servers;
+            this.from = from;
+            this.count = count;
+        }
+    }
+
+    /**
+     * The jobs of one sweep, shared by the threads driving the
+     * workers: those not yet taken, the number not yet done, the
+     * results so far and the first failure, if any.
+     */
+    private static class Work {
+        private final Deque<Job> pending = new ArrayDeque<Job>();
+        private final Map<Integer, SimulationStats[]> results =
+            new LinkedHashMap<Integer, SimulationStats[]>();
+        private int remaining = 0;
+        private int live;
+        private String failure = null;
+
+        Work(int workers) {
+            this.live = workers;
+        }
+
+        synchronized void add(Job job) {
+            this.pending.add(job);
+            this.remaining++;
+        }
+
+        /**
+         * Returns the next job, waiting while all the others are
+         * being run, or null once there is nothing left to do.
+         */
+        synchronized Job take() throws InterruptedException {
+            while (this.pending.isEmpty() && this.remaining > 0 && this.failure == null) {
+                this.wait();
+            }
+            return this.remaining == 0 || this.failure != null ? null : this.pending.poll();
+        }
+
+        synchronized void done(Job job, SimulationStats[] stats) {
+            System.arraycopy(stats, 0, this.results.get(job.servers), job.from, job.count);
+            this.remaining--;
+            this.notifyAll();
+        }
+
+        synchronized void retry(Job job, String reason) {
+            if (++job.attempts >= MAX_ATTEMPTS) {
+                this.failure = "job " + job.id + " failed " + job.attempts
+                    + " times, last on " + reason;
+            } else {
+                this.pending.addFirst(job);
+            }
+            this.notifyAll();
+        }
+
+        synchronized void lost() {
+            if (--this.live == 0 && this.remaining > 0 && this.failure == null) {
+                this.failure = "every worker has failed";
+            }
+            this.notifyAll();
+        }
+
+        /**
+         * Waits until every job is done, or throws if the work has
+         * failed.
+         */
+        synchronized void await() throws IOException, InterruptedException {
+            while (this.remaining > 0 && this.failure == null) {
+                this.wait();
+            }
+            if (this.failure != null) {
+                throw new IOException(this.failure);
+            }
+        }
+    }
+
+    /**
+     * Reads a scenario in the input format of the Main class, runs
+     * its replications on a farm, and prints the mean of the
+     * {@code [average served left]} statistics of the replications
+     * for every number of servers, with the 95% half-width of the
+     * average wait.
+     *
+     * @param args the options described above
+     * @throws IOException if the farm fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        String hosts = null;
+        int n = 100;
+        int batch = 10;
+        long seed = 2030L;
+        String sweep = null;
+        int timeout = 600;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--workers=")) {
+                workers = Integer.parseInt(value);
+            } else if (arg.startsWith("--hosts=")) {
+                hosts = value;
+            } else if (arg.startsWith("--replications=")) {
+                n = Integer.parseInt(value);
+            } else if (arg.startsWith("--batch=")) {
+                batch = Integer.parseInt(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--servers=")) {
+                sweep = value;
+            } else if (arg.startsWith("--timeout=")) {
+                timeout = Integer.parseInt(value);
+            }
+        }
+
+        byte[] input = System.in.readAllBytes();
+        int[] servers;
+        if (sweep == null) {
+            servers = new int[] {new Scanner(new ByteArrayInputStream(input)).nextInt()};
+        } else {
+            String[] range = sweep.split("-");
+            int first = Integer.parseInt(range[0]);
+            int last = Integer.parseInt(range[range.length - 1]);
+            servers = new int[last - first + 1];
+            for (int k = first; k <= last; k++) {
+                servers[k - first] = k;
+            }
+        }
+
+        ReplicationFarm farm;
+        if (hosts == null) {
+            farm = ReplicationFarm.local(input, workers, timeout * 1000);
+        } else {
+            List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+            for (String host : hosts.split(",")) {
+                int colon = host.lastIndexOf(':');
+                addresses.add(new InetSocketAddress(host.substring(0, colon),
+                            Integer.parseInt(host.substring(colon + 1))));
+            }
+            farm = new ReplicationFarm(input, addresses, timeout * 1000);
+        }
+
+        try (farm) {
+            for (Map.Entry<Integer, SimulationStats[]> entry
+                    : farm.sweep(seed, n, batch, servers).entrySet()) {
+                System.out.println(ReplicationFarm.summary(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Returns the mean statistics of the replications with one
+     * number of servers.
+     */
+    private static String summary(int servers, SimulationStats[] replications) {
+        int n = replications.length;
+        double[] waits = new double[n];
+        double served = 0.0;
+        double left = 0.0;
+        for (int i = 0; i < n; i++) {
+            waits[i] = replications[i].averageWait();
+            served += replications[i].served();
+            left += replications[i].left();
+        }
+        double variance = n > 1 ? VarianceReduction.variance(waits) / n : 0.0;
+        Estimate estimate = new Estimate("farm", n, VarianceReduction.mean(waits),
+                variance, variance);
+        return String.format("%d servers: [%.3f %.3f %.3f] +/-%.5f (95%%) over %d replications",
+                servers, estimate.mean(), served / n, left / n, estimate.halfWidth(), n);
+    }
+}
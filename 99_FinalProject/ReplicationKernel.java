@@ -0,0 +1,54 @@
+/**
+ * A ReplicationKernel runs many replications of a first-come-
+ * first-served shop at once: human servers only, none of which ever
+ * rest, nobody ever leaving and arrivals in order, which is where the
+ * {@link LindleyEngine} applies. Replications of such a shop differ
+ * only in their service times, so a kernel takes them all in one
+ * primitive array, customer-major: the service time of customer i
+ * in replication r is {@code serviceTimes[i * replications + r]}.
+ *
+ * <p>Per replication, the kernel keeps a workload per server: the
+ * time server 1 is done with everyone queued at it, and the next
+ * free time of each other server. An arriving customer is served by
+ * the first server whose workload has run out, or else joins the
+ * queue of server 1, which is the same recursion the LindleyEngine
+ * follows.
+ */
+interface ReplicationKernel {
+
+    /**
+     * Adds the total waiting time of every replication to
+     * {@code totalWaits}, whose length is the number of
+     * replications.
+     *
+     * @param arrivals the customer arrival times, in order
+     * @param servers the number of servers
+     * @param serviceTimes the service times, customer-major
+     * @param totalWaits the total waiting time of each replication
+     */
+    void totalWaits(double[] arrivals, int servers, double[] serviceTimes,
+            double[] totalWaits);
+
+    /**
+     * Returns the name of the kernel.
+     *
+     * @return the name.
+     */
+    String name();
+
+    /**
+     * Returns the vectorised kernel if it has been compiled and the
+     * {@code jdk.incubator.vector} module is present, or the scalar
+     * kernel otherwise.
+     *
+     * @return the fastest available {@code ReplicationKernel}.
+     */
+    static ReplicationKernel load() {
+        try {
+            return (ReplicationKernel) Class.forName("VectorReplicationKernel")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ScalarReplicationKernel.INSTANCE;
+        }
+    }
+}
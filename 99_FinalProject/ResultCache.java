@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A ResultCache keeps the outputs of simulations on disk, named by
+ * their {@link CacheKey}, so that a simulation asked for again with
+ * exactly the same inputs and seeds is answered without running.
+ * The most recently used outputs are also kept in memory.
+ *
+ * <p>Every entry is a file holding a header line followed by the
+ * output:
+ *
+ * <pre>
+ * DESCACHE version key sha256-of-output length
+ * </pre>
+ *
+ * <p>An entry whose header does not match, whose output is cut
+ * short or whose checksum fails is corrupt; one written by another
+ * version of the cache is stale. Either is deleted and simulated
+ * again. Entries are written to a temporary file and moved into
+ * place, so a reader never sees half an entry.
+ *
+ * <p>The total size of the entries is kept under a cap by evicting
+ * the least recently used, whose order survives restarts through
+ * the last-modified time of the files. A ResultCache is safe to
+ * share between threads; the simulations themselves run outside its
+ * lock, so a key asked for by two threads at once may be simulated
+ * twice, with the same result.
+ */
+public class ResultCache {
+
+    static final int VERSION = 1;
+    private static final String MAGIC = "DESCACHE";
+    private static final String SUFFIX = ".entry";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final int memoryEntries;
+    private final LinkedHashMap<String, Long> onDisk =     // key to size, LRU first
+        new LinkedHashMap<String, Long>(16, 0.75f, true);
+    private final LinkedHashMap<String, String> inMemory = // key to output, LRU first
+        new LinkedHashMap<String, String>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long invalid = 0;
+
+    /**
+     * Opens a ResultCache in a directory, creating it if need be.
+     *
+     * @param directory the directory of the entries
+     * @param maxBytes the cap on the total size of the entries
+     * @param memoryEntries the number of outputs kept in memory
+     * @throws IOException if the directory cannot be read
+     */
+    public ResultCache(Path directory, long maxBytes, int memoryEntries) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.memoryEntries = memoryEntries;
+
+        List<Path> entries = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            files.forEach(entries::add);
+        }
+        entries.sort(Comparator.comparing(ResultCache::lastModified));
+        for (Path entry : entries) {    // oldest first, so they are evicted first
+            String name = entry.getFileName().toString();
+            long size = Files.size(entry);
+            this.onDisk.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            this.totalBytes += size;
+        }
+        this.evict();
+    }
+
+    /**
+     * Returns the last-modified time of a file, or the epoch if it
+     * has gone.
+     */
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Returns the cached output of a key, or simulates and caches
+     * it if there is none.
+     *
+     * @param key the key, as given by {@code CacheKey.hex}
+     * @param simulation the simulation to run on a miss
+     * @return the output.
+     */
+    public String get(String key, Supplier<String> simulation) {
+        String output = this.lookUp(key);
+        if (output != null) {
+            return output;
+        }
+        output = simulation.get();
+        this.put(key, output);
+        return output;
+    }
+
+    /**
+     * Returns the cached output of a key from memory or disk, or
+     * null if there is no valid entry.
+     */
+    private synchronized String lookUp(String key) {
+        String output = this.inMemory.get(key);
+        if (output != null) {
+            this.onDisk.get(key);   // most recently used on disk as well
+        } else if (this.onDisk.get(key) != null) {
+            output = this.readEntry(key);
+            if (output != null) {
+                this.remember(key, output);
+                this.touch(key);
+            }
+        }
+        if (output == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return output;
+    }
+
+    /**
+     * Reads and validates an entry. An invalid entry is deleted.
+     */
+    private String readEntry(String key) {
+        try {
+            byte[] bytes = Files.readAllBytes(this.path(key));
+            int newline = 0;
+            while (newline < bytes.length && bytes[newline] != '\n') {
+                newline++;
+            }
+            String[] header = new String(bytes, 0, newline, StandardCharsets.UTF_8).split(" ");
+            int length = bytes.length - newline - 1;
+
+            if (header.length == 5 && header[0].equals(MAGIC)
+                    && header[1].equals(String.valueOf(VERSION)) && header[2].equals(key)
+                    && header[4].equals(String.valueOf(length))) {
+                String output = new String(bytes, newline + 1, length, StandardCharsets.UTF_8);
+                if (header[3].equals(ResultCache.checksum(output))) {
+                    return output;
+                }
+            }
+        } catch (IOException e) {
+            // unreadable, treated as corrupt
+        }
+        this.invalid++;
+        this.remove(key);
+        return null;
+    }
+
+    /**
+     * Writes an entry, evicting others if the cache is over its cap.
+     */
+    private void put(String key, String output) {
+        byte[] body = output.getBytes(StandardCharsets.UTF_8);
+        byte[] header = String.format("%s %d %s %s %d\n", MAGIC, VERSION, key,
+                ResultCache.checksum(output), body.length).getBytes(StandardCharsets.UTF_8);
+        byte[] entry = Arrays.copyOf(header, header.length + body.length);
+        System.arraycopy(body, 0, entry, header.length, body.length);
+
+        try {
+            Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+            Files.write(temporary, entry);
+            Files.move(temporary, this.path(key), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return;   // the output is still returned, just not cached
+        }
+
+        synchronized (this) {
+            Long previous = this.onDisk.put(key, (long) entry.length);
+            this.totalBytes += entry.length - (previous == null ? 0 : previous);
+            this.remember(key, output);
+            this.evict();
+        }
+    }
+
+    /**
+     * Keeps an output in memory, forgetting the least recently used
+     * one if there are too many.
+     */
+    private void remember(String key, String output) {
+        this.inMemory.put(key, output);
+        if (this.inMemory.size() > this.memoryEntries) {
+            Iterator<String> eldest = this.inMemory.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Marks the file of an entry as the most recently used.
+     */
+    private void touch(String key) {
+        try {
+            Files.setLastModifiedTime(this.path(key),
+                    FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // the order on disk is only a hint for the next start
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the total size
+     * is under the cap.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = this.onDisk.entrySet().iterator();
+        while (this.totalBytes > this.maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            this.forget(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes an entry.
+     */
+    private void remove(String key) {
+        Long size = this.onDisk.remove(key);
+        if (size != null) {
+            this.forget(key, size);
+        }
+    }
+
+    /**
+     * Deletes the file of an entry already taken out of the index,
+     * and drops it from memory.
+     */
+    private void forget(String key, long size) {
+        this.totalBytes -= size;
+        this.inMemory.remove(key);
+        try {
+            Files.deleteIfExists(this.path(key));
+        } catch (IOException e) {
+            // left for the next start to find
+        }
+    }
+
+    /**
+     * Returns the path of the entry of a key.
+     */
+    private Path path(String key) {
+        return this.directory.resolve(key + SUFFIX);
+    }
+
+    /**
+     * Returns the SHA-256 of an output, in hexadecimal.
+     */
+    private static String checksum(String output) {
+        try {
+            return CacheKey.hex(MessageDigest.getInstance("SHA-256")
+                    .digest(output.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the hit, miss and invalid entry counts and the size of
+     * the cache.
+     *
+     * @return the String representation of the cache statistics.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("hits=%d misses=%d invalid=%d entries=%d bytes=%d",
+                this.hits, this.misses, this.invalid, this.onDisk.size(), this.totalBytes);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * A RunOptions describes what a single event-by-event run of a
+ * {@link Simulator} produces besides its statistics:
+ *
+ * <ul>
+ * <li>its output, the whole of it, only its last lines in a
+ * {@link TraceTail}, or none;
+ * <li>the {@link TimeWeightedStats} of its servers;
+ * <li>the derivatives of its average wait estimated by a
+ * {@link PerturbationAnalysis};
+ * <li>an {@link EventLoopProfile} of its loop.
+ * </ul>
+ *
+ * <p>Each is read off the same run, so any combination of them costs
+ * one run. {@code RunOptions.none()}, the default, asks for the
+ * whole output and nothing else. Like an Abandonment, a RunOptions
+ * is immutable.
+ */
+public class RunOptions {
+
+    private static final RunOptions NONE = new RunOptions(true, null, false, false,
+            Double.NaN, Double.NaN, false);
+
+    private final boolean output;          // whether to build the output
+    private final TraceTail tail;          // null to keep all of the output
+    private final boolean timeWeighted;
+    private final boolean perturbed;
+    private final double meanService;      // NaN unless perturbed
+    private final double meanRest;
+    private final boolean profiled;
+
+    /**
+     * Constructs a RunOptions with all parameters specified.
+     */
+    private RunOptions(boolean output, TraceTail tail, boolean timeWeighted,
+            boolean perturbed, double meanService, double meanRest, boolean profiled) {
+        this.output = output;
+        this.tail = tail;
+        this.timeWeighted = timeWeighted;
+        this.perturbed = perturbed;
+        this.meanService = meanService;
+        this.meanRest = meanRest;
+        this.profiled = profiled;
+    }
+
+    /**
+     * Returns the RunOptions of a run that builds its whole output
+     * and nothing else.
+     *
+     * @return the default {@code RunOptions}.
+     */
+    public static RunOptions none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a RunOptions identical to this one whose run keeps only
+     * the last lines of its output, in the given TraceTail, so that
+     * memory does not grow with the length of the run.
+     *
+     * @param tail the TraceTail to keep the last lines in
+     * @return the {@code RunOptions} with the tail.
+     */
+    public RunOptions withTail(TraceTail tail) {
+        return new RunOptions(true, tail, this.timeWeighted, this.perturbed,
+                this.meanService, this.meanRest, this.profiled);
+    }
+
+    /**
+     * Returns a RunOptions identical to this one whose run builds no
+     * output at all, for when only what is read off the run is
+     * wanted.
+     *
+     * @return the {@code RunOptions} without output.
+     */
+    public RunOptions withoutOutput() {
+        return new RunOptions(false, null, this.timeWeighted, this.perturbed,
+                this.meanService, this.meanRest, this.profiled);
+    }
+
+    /**
+     * Returns a RunOptions identical to this one whose run keeps the
+     * time-weighted statistics of its servers.
+     *
+     * @return the {@code RunOptions} with time-weighted statistics.
+     */
+    public RunOptions withTimeWeighted() {
+        return new RunOptions(this.output, this.tail, true, this.perturbed,
+                this.meanService, this.meanRest, this.profiled);
+    }
+
+    /**
+     * Returns a RunOptions identical to this one whose run feeds a
+     * PerturbationAnalysis. The means given must be those of the
+     * service and rest time suppliers, or NaN for either that is not
+     * a scale family in its mean.
+     *
+     * @param meanService the mean service time
+     * @param meanRest the mean rest time
+     * @return the {@code RunOptions} with perturbation analysis.
+     */
+    public RunOptions withPerturbation(double meanService, double meanRest) {
+        return new RunOptions(this.output, this.tail, this.timeWeighted, true,
+                meanService, meanRest, this.profiled);
+    }
+
+    /**
+     * Returns a RunOptions identical to this one whose run times its
+     * loop into an EventLoopProfile.
+     *
+     * @return the {@code RunOptions} with profiling.
+     */
+    public RunOptions withProfile() {
+        return new RunOptions(this.output, this.tail, this.timeWeighted, this.perturbed,
+                this.meanService, this.meanRest, true);
+    }
+
+    /**
+     * Returns {@code true} if the run builds its output.
+     *
+     * @return {@code true} if the output is built.
+     */
+    boolean hasOutput() {
+        return this.output;
+    }
+
+    /**
+     * Returns the TraceTail the output is kept in.
+     *
+     * @return the {@code TraceTail}, or null to keep all of the output.
+     */
+    TraceTail tail() {
+        return this.tail;
+    }
+
+    /**
+     * Returns {@code true} if the run keeps time-weighted statistics.
+     *
+     * @return {@code true} if time-weighted statistics are kept.
+     */
+    boolean isTimeWeighted() {
+        return this.timeWeighted;
+    }
+
+    /**
+     * Returns {@code true} if the run feeds a PerturbationAnalysis.
+     *
+     * @return {@code true} if the run is perturbed.
+     */
+    boolean isPerturbed() {
+        return this.perturbed;
+    }
+
+    /**
+     * Returns the mean service time the derivatives are taken with
+     * respect to.
+     *
+     * @return {@code double} value of the mean service time.
+     */
+    double meanService() {
+        return this.meanService;
+    }
+
+    /**
+     * Returns the mean rest time the derivatives are taken with
+     * respect to.
+     *
+     * @return {@code double} value of the mean rest time.
+     */
+    double meanRest() {
+        return this.meanRest;
+    }
+
+    /**
+     * Returns {@code true} if the run times its loop.
+     *
+     * @return {@code true} if the run is profiled.
+     */
+    boolean isProfiled() {
+        return this.profiled;
+    }
+}
@@ -0,0 +1,149 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A Sampler turns uniform random numbers into draws of an input
+ * distribution of the simulation, such as service or rest times.
+ * Every Sampler knows the mean of its distribution, which control
+ * variates rely on, and has a canonical textual specification from
+ * which it can be re-created with {@code parse}.
+ *
+ * <p>The parametric Samplers map a uniform through the inverse of
+ * their distribution function, so that {@code u} and {@code 1 - u}
+ * give negatively correlated draws.
+ */
+public interface Sampler {
+
+    /**
+     * Returns the draw corresponding to a uniform random number.
+     *
+     * @param u a uniform random number in [0, 1)
+     * @return {@code double} value of the draw.
+     */
+    double draw(double u);
+
+    /**
+     * Returns the mean of the distribution.
+     *
+     * @return {@code double} value of the mean.
+     */
+    double mean();
+
+    /**
+     * Returns the canonical specification of the Sampler, as
+     * accepted by {@code parse}.
+     *
+     * @return the specification.
+     */
+    String spec();
+
+    /**
+     * Returns {@code true} if the Sampler is a scale family in its
+     * mean: if drawing with the mean multiplied by c multiplies
+     * every draw of the same uniform by c. Perturbation analysis
+     * relies on this, and gives NaN derivatives for Samplers that
+     * are not, such as empirical ones.
+     *
+     * @return {@code true} if the draws scale with the mean.
+     */
+    default boolean isScaleFamily() {
+        return true;
+    }
+
+    /**
+     * Returns everything the draws of the Sampler depend on, to be
+     * added to the key of a cached result: its specification, and
+     * for a Sampler read from a file, the digest of its contents.
+     *
+     * @return the cache key of the Sampler.
+     */
+    default String cacheKey() {
+        return this.spec();
+    }
+
+    /**
+     * Returns a Sampler that always draws the same value.
+     *
+     * @param value the value
+     * @return the constant {@code Sampler}.
+     */
+    static Sampler constant(double value) {
+        return new SimpleSampler("const:" + value, value, u -> value);
+    }
+
+    /**
+     * Returns a Sampler of exponentially distributed values.
+     *
+     * @param rate the rate of the distribution
+     * @return the exponential {@code Sampler}.
+     */
+    static Sampler exponential(double rate) {
+        return new SimpleSampler("exp:" + rate, 1.0 / rate,
+                u -> -Math.log1p(-u) / rate);
+    }
+
+    /**
+     * Returns a Sampler of server rest times: a rest, exponentially
+     * distributed with the given rate, is taken with probability
+     * probRest, and no rest otherwise.
+     *
+     * @param probRest the probability of resting
+     * @param rate the rate of the rest duration
+     * @return the rest time {@code Sampler}.
+     */
+    static Sampler rest(double probRest, double rate) {
+        return new SimpleSampler("rest:" + probRest + ":" + rate, probRest / rate,
+                u -> u < 1.0 - probRest ? 0.0
+                    : -Math.log1p(-(u - (1.0 - probRest)) / probRest) / rate);
+    }
+
+    /**
+     * Returns a Sampler of the empirical distribution of a file of
+     * histogram bins, as {@code low high weight} lines, or of raw
+     * samples, one per line. Draws take O(1) time through an
+     * {@link AliasTable}, which is read once per file and shared by
+     * every Sampler of it.
+     *
+     * @param file the histogram or samples file
+     * @param interpolate whether to draw uniformly within a bin,
+     *     rather than at its midpoint
+     * @return the empirical {@code Sampler}.
+     * @throws java.io.UncheckedIOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is malformed.
+     */
+    static Sampler empirical(Path file, boolean interpolate) {
+        return new EmpiricalSampler((interpolate ? "empirical:" : "empirical-mid:") + file,
+                AliasTable.of(file), interpolate);
+    }
+
+    /**
+     * Re-creates a Sampler from its specification.
+     *
+     * @param spec the specification
+     * @return the specified {@code Sampler}.
+     * @throws IllegalArgumentException if the specification is malformed.
+     */
+    static Sampler parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "const":
+                    return Sampler.constant(Double.parseDouble(parts[1]));
+                case "exp":
+                    return Sampler.exponential(Double.parseDouble(parts[1]));
+                case "rest":
+                    return Sampler.rest(Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2]));
+                case "empirical":      // the path may itself hold colons
+                case "empirical-mid":
+                    return Sampler.empirical(Paths.get(spec.substring(parts[0].length() + 1)),
+                            parts[0].equals("empirical"));
+                default:
+                    break;
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed sampler: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown sampler: " + spec);
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.Arrays;
+
+/**
+ * The ReplicationKernel that runs one replication after another
+ * over plain {@code double} workloads. It is used wherever the
+ * vectorised kernel is not available, and runs the tail of
+ * replications that do not fill a whole vector.
+ */
+class ScalarReplicationKernel implements ReplicationKernel {
+
+    static final ScalarReplicationKernel INSTANCE = new ScalarReplicationKernel();
+
+    private ScalarReplicationKernel() {
+    }
+
+    @Override
+    public void totalWaits(double[] arrivals, int servers, double[] serviceTimes,
+            double[] totalWaits) {
+        this.totalWaits(arrivals, servers, serviceTimes, totalWaits, 0);
+    }
+
+    /**
+     * Adds the total waiting time of the replications from
+     * {@code from} onwards to {@code totalWaits}.
+     *
+     * @param arrivals the customer arrival times, in order
+     * @param servers the number of servers
+     * @param serviceTimes the service times, customer-major
+     * @param totalWaits the total waiting time of each replication
+     * @param from the first replication to run
+     */
+    void totalWaits(double[] arrivals, int servers, double[] serviceTimes,
+            double[] totalWaits, int from) {
+        int replications = totalWaits.length;
+        double[] workload = new double[servers];
+
+        for (int r = from; r < replications; r++) {
+            Arrays.fill(workload, 0.0);
+            double total = 0.0;
+
+            for (int i = 0; i < arrivals.length; i++) {
+                double a = arrivals[i];
+                double s = serviceTimes[i * replications + r];
+                int j = 0;
+                while (j < servers && workload[j] > a) {
+                    j++;
+                }
+                if (j < servers) {          // served on arrival
+                    workload[j] = a + s;
+                } else {                    // queues at server 1
+                    total += workload[0] - a;
+                    workload[0] += s;
+                }
+            }
+            totalWaits[r] += total;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
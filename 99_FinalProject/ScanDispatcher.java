@@ -0,0 +1,29 @@
+/**
+ * The original dispatch rule, implemented by scanning the list of
+ * servers with the static methods of the QManager class: the first
+ * server by id that can serve, and otherwise the first server by id
+ * that can queue. A ScanDispatcher keeps no state, so it never needs
+ * refreshing.
+ */
+public class ScanDispatcher implements Dispatcher {
+
+    static final ScanDispatcher INSTANCE = new ScanDispatcher();
+
+    private ScanDispatcher() {
+    }
+
+    @Override
+    public int serving(ImList<Server> servers, double time) {
+        return QManager.getServing(servers, time);
+    }
+
+    @Override
+    public int queuing(ImList<Server> servers) {
+        return QManager.getQueuing(servers);
+    }
+
+    @Override
+    public Dispatcher refresh(ImList<Server> servers, Event current, Event next) {
+        return this;
+    }
+}
@@ -0,0 +1,383 @@
+import java.util.Scanner;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * A Scenario is a complete, immutable description of a shop to be
+ * simulated: the servers, self-checkouts and queue length, the
+ * customer arrival times, and the Samplers of service and rest
+ * times. Unlike a Simulator, which is handed opaque suppliers, a
+ * Scenario knows its input distributions, so it can build any
+ * number of reproducible replications from a {@link RandomStream},
+ * or from any other {@link UniformStream}.
+ *
+ * <p>The random numbers of a replication are synchronised: every
+ * customer draws its service time from a substream keyed by its
+ * customerId, and every human server draws its rest times from a
+ * substream keyed by its serverId. Two Scenarios replicated with the
+ * same stream therefore use common random numbers, customer by
+ * customer, however differently their simulations unfold.
+ */
+public class Scenario {
+
+    private static final long SERVICE_STREAM = 1L;
+    private static final long REST_STREAM = 2L;
+    private static final ReplicationKernel KERNEL = ReplicationKernel.load();
+
+    private final int numOfServers;
+    private final int selfChecks;
+    private final int qmax;
+    private final ImList<Double> arrivalTimes;
+    private final Sampler serviceTimes;
+    private final Sampler restTimes;
+    private final boolean compiled;   // whether to run kernels compiled for the shape
+
+    /**
+     * Constructs a Scenario with all parameters specified.
+     *
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length
+     * @param arrivalTimes the list of customer arrival times
+     * @param serviceTimes the Sampler of service times
+     * @param restTimes the Sampler of rest times
+     */
+    public Scenario(int servers, int selfChecks, int qmax, ImList<Double> arrivalTimes,
+            Sampler serviceTimes, Sampler restTimes) {
+        this(servers, selfChecks, qmax, arrivalTimes, serviceTimes, restTimes, false);
+    }
+
+    /**
+     * Constructs a Scenario with all parameters specified.
+     */
+    private Scenario(int servers, int selfChecks, int qmax, ImList<Double> arrivalTimes,
+            Sampler serviceTimes, Sampler restTimes, boolean compiled) {
+        this.numOfServers = servers;
+        this.selfChecks = selfChecks;
+        this.qmax = qmax;
+        this.arrivalTimes = arrivalTimes;
+        this.serviceTimes = serviceTimes;
+        this.restTimes = restTimes;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Reads a Scenario in the input format of the Main class. As in
+     * Main, service times are 1.0 and servers rest with the given
+     * probability for an exponentially distributed period.
+     *
+     * @param sc the Scanner to read from
+     * @return the {@code Scenario} read.
+     */
+    public static Scenario read(Scanner sc) {
+        int numOfServers = sc.nextInt();
+        int numOfSelfChecks = sc.nextInt();
+        int qmax = sc.nextInt();
+        double probRest = sc.nextDouble();
+
+        ImList<Double> arrivalTimes = new ImList<Double>();
+        while (sc.hasNextDouble()) {
+            arrivalTimes = arrivalTimes.add(sc.nextDouble());
+        }
+
+        return new Scenario(numOfServers, numOfSelfChecks, qmax, arrivalTimes,
+                Sampler.constant(1.0), Sampler.rest(probRest, Main.SERVER_REST_RATE));
+    }
+
+    /**
+     * Returns a Scenario identical to this one but with the given
+     * Sampler of service times.
+     *
+     * @param serviceTimes the Sampler of service times
+     * @return the {@code Scenario} with the given service times.
+     */
+    public Scenario withServiceTimes(Sampler serviceTimes) {
+        return new Scenario(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, serviceTimes, this.restTimes, this.compiled);
+    }
+
+    /**
+     * Returns a Scenario identical to this one but with the given
+     * number of human servers.
+     *
+     * @param servers the number of servers
+     * @return the {@code Scenario} with the given number of servers.
+     */
+    public Scenario withServers(int servers) {
+        return new Scenario(servers, this.selfChecks, this.qmax, this.arrivalTimes,
+                this.serviceTimes, this.restTimes, this.compiled);
+    }
+
+    /**
+     * Returns a Scenario identical to this one but whose
+     * {@code averageWaits} runs a {@code ReplicationKernel} compiled
+     * for its number of servers by the {@link KernelCompiler}, if it
+     * is first-come-first-served, and whose Simulators otherwise run
+     * a {@link ShopEngine} compiled for its number of servers, qmax
+     * and rests, if it has no self-checkouts. Scenarios with
+     * self-checkouts are replicated event by event as before, by the
+     * generic loop.
+     *
+     * @return the {@code Scenario} with a compiled kernel.
+     */
+    public Scenario withCompiledKernel() {
+        return new Scenario(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, true);
+    }
+
+    /**
+     * Returns the number of human servers.
+     *
+     * @return {@code int} value of the number of servers.
+     */
+    public int getServers() {
+        return this.numOfServers;
+    }
+
+    /**
+     * Returns the list of customer arrival times.
+     *
+     * @return the {@code ImList<Double>} of arrival times.
+     */
+    public ImList<Double> getArrivalTimes() {
+        return this.arrivalTimes;
+    }
+
+    /**
+     * Returns the Sampler of service times.
+     *
+     * @return the service time {@code Sampler}.
+     */
+    public Sampler getServiceTimes() {
+        return this.serviceTimes;
+    }
+
+    /**
+     * Returns the Sampler of rest times.
+     *
+     * @return the rest time {@code Sampler}.
+     */
+    public Sampler getRestTimes() {
+        return this.restTimes;
+    }
+
+    /**
+     * Returns a Simulator of one replication of this Scenario,
+     * drawing its random numbers from the given stream.
+     *
+     * @param stream the stream of the replication
+     * @return the {@code Simulator} of the replication.
+     */
+    public Simulator simulator(UniformStream stream) {
+        return this.simulator(stream, new double[4]);
+    }
+
+    /**
+     * Simulates one replication of this Scenario and returns the
+     * derivatives of its average wait with respect to the means of
+     * its service and rest time Samplers, estimated from that single
+     * replication by a {@link PerturbationAnalysis}. This replaces a
+     * pair of replications with nudged means on common random
+     * numbers for every derivative wanted.
+     *
+     * @param stream the stream of the replication
+     * @return the {@code PerturbationAnalysis} of the replication.
+     */
+    public PerturbationAnalysis sensitivity(UniformStream stream) {
+        RunOptions options = RunOptions.none().withoutOutput().withPerturbation(
+                Scenario.scale(this.serviceTimes), Scenario.scale(this.restTimes));
+        return this.simulator(stream).simulateRun(options).second().perturbation();
+    }
+
+    /**
+     * Returns the mean of a Sampler that is a scale family in it,
+     * and NaN, for which a PerturbationAnalysis gives NaN
+     * derivatives, for any other.
+     */
+    private static double scale(Sampler sampler) {
+        return sampler.isScaleFamily() ? sampler.mean() : Double.NaN;
+    }
+
+    /**
+     * Simulates one replication of this Scenario, recording the
+     * mean of the service and rest times it drew alongside its
+     * statistics.
+     *
+     * @param stream the stream of the replication
+     * @return the {@code Replication}.
+     */
+    public Replication replicate(UniformStream stream) {
+        double[] tally = new double[4];
+        SimulationStats stats = this.simulator(stream, tally).statistics();
+        return new Replication(stats,
+                tally[1] == 0 ? this.serviceTimes.mean() : tally[0] / tally[1],
+                tally[3] == 0 ? this.restTimes.mean() : tally[2] / tally[3]);
+    }
+
+    /**
+     * Returns the key of the output of a replication of this
+     * Scenario in a {@link ResultCache}: the digest of the shop, the
+     * arrival times, the cache keys of the Samplers and the seed of
+     * the stream.
+     *
+     * @param stream the stream of the replication
+     * @return the key.
+     */
+    public String cacheKey(RandomStream stream) {
+        return new CacheKey("Scenario")
+            .add(this.numOfServers)
+            .add(this.selfChecks)
+            .add(this.qmax)
+            .add(ArrivalTimes.of(this.arrivalTimes))
+            .add(this.serviceTimes.cacheKey())
+            .add(this.restTimes.cacheKey())
+            .add(stream)
+            .hex();
+    }
+
+    /**
+     * Returns the output of the simulate method of a replication of
+     * this Scenario, from the cache if it has been simulated before.
+     *
+     * @param stream the stream of the replication
+     * @param cache the cache of outputs
+     * @return the String representation of the replication.
+     */
+    public String simulate(RandomStream stream, ResultCache cache) {
+        return cache.get(this.cacheKey(stream), () -> this.simulator(stream).simulate());
+    }
+
+    /**
+     * Checks if this Scenario is a plain first-come-first-served
+     * queue: human servers only, none of which ever rest, and
+     * nobody ever leaving.
+     *
+     * @return {@code true} if a {@code ReplicationKernel} applies.
+     */
+    public boolean isFirstComeFirstServed() {
+        return this.selfChecks == 0 && this.numOfServers > 0
+            && this.restTimes.mean() == 0
+            && LindleyEngine.nobodyLeaves(this.qmax, ArrivalTimes.of(this.arrivalTimes));
+    }
+
+    /**
+     * Returns the average wait of each of n replications, where
+     * replication i uses substream i of the given stream, as
+     * {@code replicate} would. First-come-first-served Scenarios are
+     * run all at once by the fastest available
+     * {@code ReplicationKernel}, or by a compiled one if asked for.
+     * Either may differ from {@code replicate} in the last bit, as
+     * it adds up the waits in order of arrival rather than of
+     * service.
+     *
+     * @param stream the stream replication i uses substream i of
+     * @param n the number of replications
+     * @return the average wait of each replication.
+     */
+    public double[] averageWaits(UniformStream stream, int n) {
+        double[] waits = new double[n];
+        if (!this.isFirstComeFirstServed()) {
+            for (int r = 0; r < n; r++) {
+                waits[r] = this.replicate(stream.substream(r)).stats().averageWait();
+            }
+            return waits;
+        }
+
+        int customers = this.arrivalTimes.size();
+        double[] arrivals = new double[customers];
+        double[] serviceTimes = new double[customers * n];
+        for (int i = 0; i < customers; i++) {
+            arrivals[i] = this.arrivalTimes.get(i);
+        }
+        for (int r = 0; r < n; r++) {
+            UniformStream serviceStream = stream.substream(r).substream(SERVICE_STREAM);
+            for (int i = 0; i < customers; i++) {
+                serviceTimes[i * n + r] = this.serviceTimes.draw(
+                        serviceStream.substream(i + 1).next());
+            }
+        }
+
+        ReplicationKernel kernel = this.compiled
+            ? KernelCompiler.kernel(this.numOfServers) : KERNEL;
+        kernel.totalWaits(arrivals, this.numOfServers, serviceTimes, waits);
+        for (int r = 0; r < n; r++) {
+            waits[r] = new SimulationStats(waits[r], customers, 0).averageWait();
+        }
+        return waits;
+    }
+
+    /**
+     * Returns the number of inputs of a replication that
+     * {@code quasiRandom} lays over the dimensions of a point: the
+     * service time of every customer, then as many rest times of
+     * every human server as there are customers per server.
+     *
+     * @return {@code int} value of the number of dimensions.
+     */
+    public int dimensions() {
+        return this.arrivalTimes.size() + this.numOfServers * this.restDepth();
+    }
+
+    /**
+     * Returns the UniformStream whose substream r draws the inputs of
+     * replication r from point r of a scrambled Sobol sequence, as
+     * laid out by {@code dimensions}, and any others from substream r
+     * of the padding. A sequence of fewer dimensions leaves the last
+     * inputs to the padding.
+     *
+     * @param points the scrambled sequence of points
+     * @param padding the stream of the inputs not laid over a point
+     * @return the quasi-random {@code UniformStream}.
+     */
+    public UniformStream quasiRandom(SobolSequence points, RandomStream padding) {
+        return new SobolStream(points, padding)
+            .withLane(SERVICE_STREAM, this.arrivalTimes.size(), 1)
+            .withLane(REST_STREAM, this.numOfServers, this.restDepth());
+    }
+
+    /**
+     * Returns the number of rest times of each human server that
+     * are laid over a point.
+     */
+    private int restDepth() {
+        if (this.numOfServers == 0 || this.restTimes.mean() == 0) {
+            return 0;
+        }
+        return (this.arrivalTimes.size() + this.numOfServers - 1) / this.numOfServers;
+    }
+
+    /**
+     * Returns a Simulator of one replication that adds every service
+     * draw and its count to {@code tally[0]} and {@code tally[1]},
+     * and every rest draw and its count to {@code tally[2]} and
+     * {@code tally[3]}.
+     */
+    private Simulator simulator(UniformStream stream, double[] tally) {
+        UniformStream serviceStream = stream.substream(SERVICE_STREAM);
+        UniformStream restStream = stream.substream(REST_STREAM);
+
+        IntFunction<Supplier<Double>> service = customerId -> () -> {
+            double s = this.serviceTimes.draw(serviceStream.substream(customerId).next());
+            tally[0] += s;
+            tally[1]++;
+            return s;
+        };
+
+        IntFunction<Supplier<Double>> rest = serverId -> {
+            if (this.restTimes.mean() == 0) {
+                return Server.NO_REST;
+            }
+            UniformStream serverStream = restStream.substream(serverId);
+            return () -> {
+                double r = this.restTimes.draw(serverStream.next());
+                tally[2] += r;
+                tally[3]++;
+                return r;
+            };
+        };
+
+        Simulator simulator = new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, service, rest);
+        return this.compiled ? simulator.withCompiledEngine() : simulator;
+    }
+}
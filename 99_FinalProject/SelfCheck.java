@@ -1,11 +1,7 @@
-import java.util.function.Supplier;
-
 /**
  * A Self-Checkout class that extends the Server Class.
  */ 
 public class SelfCheck extends Server {
-    
-    private static final Supplier<Double> zeroRestTime = () -> 0.0;
 
     /**
      * Constructs a SelfCheck using the super class constructor
@@ -20,7 +16,7 @@ public class SelfCheck extends Server {
      */
     SelfCheck(int id, double nextFree, int qmax, int serverQ,
             boolean avail) {
-        super(id, nextFree, qmax, serverQ, avail, zeroRestTime, true);
+        super(id, nextFree, qmax, serverQ, avail, Server.NO_REST, true);
     }
 
     /**
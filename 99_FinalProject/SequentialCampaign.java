@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A SequentialCampaign replicates a {@link Scenario} until the
+ * average wait and the leave rate are known to a given precision,
+ * instead of for a number of replications guessed in advance:
+ *
+ * <pre>
+ * java SequentialCampaign [--wait=D] [--leave=D] [--min=N] [--max=N]
+ *     [--threads=T] [--seed=S] &lt; input.in
+ * </pre>
+ *
+ * <p>Replications are run in batches of one per thread. The
+ * campaign applies the rule of Chow and Robbins: it stops at the
+ * first n, at least the minimum, for which the 95% half-width
+ * {@code z * sqrt((s^2 + 1/n) / n)} of each statistic is within its
+ * target, s^2 being the sample variance of n replications. The
+ * {@code 1/n} keeps a few replications that happen to agree from
+ * stopping the campaign too soon, and makes the coverage of the
+ * interval tend to 95% as the target shrinks. No batch is started
+ * once the targets are met, nor beyond the maximum.
+ *
+ * <p>Replication r uses substream r of the stream, and the results
+ * of a batch are added in replication order, with the rule checked
+ * after each one; the replications of the batch after the one that
+ * meets the rule are dropped. So where a campaign stops depends
+ * neither on the number of threads nor on how they were scheduled.
+ */
+public class SequentialCampaign {
+
+    private static final double Z_95 = 1.959964;
+
+    private final Scenario scenario;
+    private final double waitTarget;      // half-widths to reach
+    private final double leaveTarget;
+    private final int minimum;            // replications before the rule applies
+    private final int maximum;            // replications at most
+    private final int threads;
+
+    /**
+     * Constructs a SequentialCampaign with all parameters specified.
+     *
+     * @param scenario the Scenario to replicate
+     * @param waitTarget the half-width wanted for the average wait
+     * @param leaveTarget the half-width wanted for the leave rate
+     * @param minimum the number of replications before stopping is
+     *     considered, at least 2
+     * @param maximum the largest number of replications to run
+     * @param threads the number of replications run at once
+     */
+    public SequentialCampaign(Scenario scenario, double waitTarget, double leaveTarget,
+            int minimum, int maximum, int threads) {
+        this.scenario = scenario;
+        this.waitTarget = waitTarget;
+        this.leaveTarget = leaveTarget;
+        this.minimum = Math.max(2, minimum);
+        this.maximum = Math.max(this.minimum, maximum);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Runs the campaign and returns the estimates of the average wait
+     * and of the leave rate, the fraction of customers who left. Both
+     * report the number of replications run; they are within their
+     * targets unless the maximum was reached first.
+     *
+     * @param stream the stream replication r uses substream r of
+     * @return the {@code Estimate}s of the average wait and the leave rate.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Pair<Estimate, Estimate> run(RandomStream stream) throws InterruptedException {
+        Tally waits = new Tally();
+        Tally leaveRates = new Tally();
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        boolean precise = false;
+        try {
+            while (waits.n < this.maximum && !precise) {
+                List<Callable<SimulationStats>> batch =
+                    new ArrayList<Callable<SimulationStats>>();
+                int from = waits.n;
+                int to = Math.min(this.maximum, from + this.threads);
+                for (int r = from; r < to; r++) {
+                    RandomStream substream = stream.substream(r);
+                    batch.add(() -> this.scenario.replicate(substream).stats());
+                }
+
+                for (Future<SimulationStats> replication : pool.invokeAll(batch)) {
+                    SimulationStats stats = SequentialCampaign.get(replication);
+                    int customers = stats.served() + stats.left();
+                    waits.add(stats.averageWait());
+                    leaveRates.add(customers == 0 ? 0.0 : (double) stats.left() / customers);
+                    precise = this.precise(waits, leaveRates);
+                    if (precise) {      // the rest of the batch is dropped
+                        break;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new Pair<Estimate, Estimate>(waits.estimate("sequential wait"),
+                leaveRates.estimate("sequential leave rate"));
+    }
+
+    /**
+     * Checks the stopping rule: true once there are at least the
+     * minimum number of replications and both half-widths, with the
+     * variance inflated by 1/n, are within their targets.
+     */
+    private boolean precise(Tally waits, Tally leaveRates) {
+        return waits.n >= this.minimum
+            && waits.halfWidth() <= this.waitTarget
+            && leaveRates.halfWidth() <= this.leaveTarget;
+    }
+
+    /**
+     * Returns the statistics of a finished replication, rethrowing
+     * whatever it threw.
+     */
+    private static SimulationStats get(Future<SimulationStats> replication)
+            throws InterruptedException {
+        try {
+            return replication.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads a scenario in the input format of the Main class, runs a
+     * campaign on it, and prints the estimates of the average wait
+     * and of the leave rate. The targets default to half-widths of
+     * 0.1 and 0.01, at least 10 and at most 100000 replications,
+     * and one thread per processor.
+     *
+     * @param args the options described above
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static void main(String[] args) throws InterruptedException {
+        double wait = 0.1;
+        double leave = 0.01;
+        int minimum = 10;
+        int maximum = 100000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 2030L;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--wait=")) {
+                wait = Double.parseDouble(value);
+            } else if (arg.startsWith("--leave=")) {
+                leave = Double.parseDouble(value);
+            } else if (arg.startsWith("--min=")) {
+                minimum = Integer.parseInt(value);
+            } else if (arg.startsWith("--max=")) {
+                maximum = Integer.parseInt(value);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            }
+        }
+
+        Scanner sc = new Scanner(System.in);
+        Scenario scenario = Scenario.read(sc);
+        sc.close();
+
+        Pair<Estimate, Estimate> estimates = new SequentialCampaign(scenario, wait, leave,
+                minimum, maximum, threads).run(new RandomStream(seed));
+        System.out.println(SequentialCampaign.report(estimates.first()));
+        System.out.println(SequentialCampaign.report(estimates.second()));
+    }
+
+    /**
+     * Returns a one-line report of an estimate of the campaign. Unlike
+     * {@code Estimate.toString}, it leaves out the variance reduction,
+     * as a campaign has no other estimator to compare with.
+     */
+    private static String report(Estimate estimate) {
+        return String.format("%-22s runs=%6d  mean=%10.5f  +/-%9.5f (95%%)",
+                estimate.method(), estimate.runs(), estimate.mean(), estimate.halfWidth());
+    }
+
+    /**
+     * The running mean and sum of squared deviations of one
+     * statistic over the replications so far, updated by Welford's
+     * method so that the rule costs O(1) per batch.
+     */
+    private static class Tally {
+
+        private int n = 0;
+        private double mean = 0.0;
+        private double squares = 0.0;
+
+        void add(double x) {
+            this.n++;
+            double delta = x - this.mean;
+            this.mean += delta / this.n;
+            this.squares += delta * (x - this.mean);
+        }
+
+        double variance() {
+            return this.n > 1 ? this.squares / (this.n - 1) : 0.0;
+        }
+
+        /**
+         * Returns the Chow-Robbins half-width of the mean.
+         */
+        double halfWidth() {
+            return Z_95 * Math.sqrt((this.variance() + 1.0 / this.n) / this.n);
+        }
+
+        /**
+         * Returns the Estimate of the mean, with the plain sample
+         * variance.
+         */
+        Estimate estimate(String method) {
+            double variance = this.variance() / Math.max(1, this.n);
+            return new Estimate(method, this.n, this.n > 0 ? this.mean : Double.NaN,
+                    variance, variance);
+        }
+    }
+}
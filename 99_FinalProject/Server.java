@@ -12,6 +12,12 @@ import java.util.function.Supplier;
 
 public class Server {
 
+    /**
+     * The rest time supplier of servers that never rest. Servers
+     * constructed with it report so through {@code isRestless}.
+     */
+    public static final Supplier<Double> NO_REST = () -> 0.0;
+
     private final int serverId;
     private final double nextFree;
     private final int qmax;
@@ -111,6 +117,25 @@ public class Server {
         return this.selfCheck;
     }
 
+    /**
+     * Returns the server's rest time supplier.
+     *
+     * @return the {@code Supplier<Double>} of the server's rest times.
+     */
+    public Supplier<Double> getRestTime() {
+        return this.restTime;
+    }
+
+    /** 
+     * Returns whether the server never rests, which is the case
+     * when its rest time supplier is {@code NO_REST}.
+     * 
+     * @return {@code true} if the server never rests.
+     */
+    public boolean isRestless() {
+        return this.restTime == NO_REST;
+    }
+
     /** 
      * Checks if the server is able to queue customers.
      * @return {@code true} if server queue is less than qmax.
@@ -0,0 +1,42 @@
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * A ShopEngine simulates whole runs of shops of one shape: a number
+ * of human servers and no self-checkouts, a qmax, servers that rest
+ * or not, arrivals in order and the default dispatch policy. It
+ * does what the generic event loop of {@link SimulationRun} does for
+ * such a shop, event for event: the same pending events polled in
+ * the order of the EventComp, the same changes to the servers and
+ * the same draws from the suppliers in the same order, so its output
+ * and statistics are identical. Only the events are not objects, but
+ * a time and a kind per customer, and the servers are not an ImList,
+ * but a few primitives each.
+ *
+ * <p>Engines are generated for each shape by the
+ * {@link KernelCompiler}.
+ */
+interface ShopEngine {
+
+    /**
+     * Simulates a whole run, appending the line of every event to
+     * the output, if any, and returns its statistics. The servers
+     * are only read for their rest time suppliers and to name them
+     * in the output.
+     *
+     * @param arrivalTimes the customer arrival times, in order
+     * @param serviceTimes the supplier of service times of each customerId
+     * @param serverList the initial list of servers
+     * @param output the TraceWriter to append to, or null for none
+     * @return the {@code SimulationStats} of the run.
+     */
+    SimulationStats run(ArrivalTimes arrivalTimes, IntFunction<Supplier<Double>> serviceTimes,
+            ImList<Server> serverList, TraceWriter output);
+
+    /**
+     * Returns the name of the engine.
+     *
+     * @return the name.
+     */
+    String name();
+}
@@ -0,0 +1,26 @@
+/**
+ * Join-shortest-queue dispatch: the first server by id that can
+ * serve, and otherwise the server with the shortest queue that
+ * still has room, ties going to the lowest id.
+ */
+class ShortestQueueDispatcher extends IndexedDispatcher {
+
+    /**
+     * Constructs a ShortestQueueDispatcher over the given servers.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     */
+    ShortestQueueDispatcher(ImList<Server> servers) {
+        super(servers);
+    }
+
+    @Override
+    public int serving(ImList<Server> servers, double time) {
+        return IndexedDispatcher.serverId(this.freeTimes().leftmostAtMost(time));
+    }
+
+    @Override
+    public int queuing(ImList<Server> servers) {
+        return IndexedDispatcher.serverId(this.queueLengths().argMin());
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A SimProcess is an active entity of a process-oriented
+ * simulation, written as plain sequential code in its
+ * {@code body} method instead of as a chain of Event subclasses.
+ * A body advances simulated time with {@code hold} and competes
+ * for {@link Counter} units with {@code acquire} and
+ * {@code release}; each of these may suspend the process while
+ * the {@link ProcessScheduler} runs others.
+ *
+ * <p>The blocking methods may only be called from within
+ * {@code body}, on the process's own thread.
+ */
+public abstract class SimProcess {
+
+    private final int processId;
+    private final Semaphore resumed = new Semaphore(0);
+    private ProcessScheduler scheduler;
+    private boolean started = false;
+
+    /**
+     * Constructs a process with the given id. Ids break ties
+     * between processes that are due at the same time, so they
+     * should be unique within a scheduler.
+     *
+     * @param processId the integer id of the process
+     */
+    protected SimProcess(int processId) {
+        this.processId = processId;
+    }
+
+    /**
+     * The sequential behaviour of the process.
+     */
+    protected abstract void body();
+
+    /**
+     * Returns the id of the process.
+     *
+     * @return {@code int} value of the process id.
+     */
+    public int getProcessId() {
+        return this.processId;
+    }
+
+    /**
+     * Returns the current simulated time.
+     *
+     * @return {@code double} value of the simulated clock.
+     */
+    protected double now() {
+        return this.scheduler.now();
+    }
+
+    /**
+     * Suspends the process for the given duration of simulated
+     * time.
+     *
+     * @param duration how long to hold for
+     */
+    protected void hold(double duration) {
+        this.holdUntil(this.now() + duration);
+    }
+
+    /**
+     * Suspends the process until the given simulated time.
+     *
+     * @param time the time to be resumed at
+     */
+    protected void holdUntil(double time) {
+        this.scheduler.schedule(this, time);
+        this.suspend();
+    }
+
+    /**
+     * Keeps a unit of a Counter busy for the given duration, and
+     * suspends the process until the duration has elapsed. Other
+     * processes see the unit as busy until then.
+     *
+     * @param counter the Counter the unit belongs to
+     * @param unit the unit, as returned by {@code acquire}
+     * @param duration how long the unit is kept busy for
+     */
+    protected void hold(Counter counter, int unit, double duration) {
+        counter.occupy(unit, this.now() + duration);
+        this.hold(duration);
+    }
+
+    /**
+     * Acquires a unit of the given Counter. If no unit is free, the
+     * process joins the Counter's queue and checks again each time
+     * the earliest unit is due to be free, exactly as a WaitEvent
+     * re-polls its server.
+     *
+     * @param counter the Counter to acquire a unit of
+     * @return {@code int} index of the acquired unit.
+     */
+    protected int acquire(Counter counter) {
+        int unit = counter.firstFree(this.now());
+        if (unit >= 0) {
+            return unit;
+        }
+
+        counter.join();
+        while (unit < 0) {
+            this.holdUntil(counter.earliestFree());
+            unit = counter.firstFree(this.now());
+        }
+        counter.leave();
+        return unit;
+    }
+
+    /**
+     * Releases a unit of a Counter. The Counter's rest time is
+     * added to the unit's next free time.
+     *
+     * @param counter the Counter the unit belongs to
+     * @param unit the unit to release
+     */
+    protected void release(Counter counter, int unit) {
+        counter.rest(unit);
+    }
+
+    /**
+     * Attaches the process to the scheduler that runs it.
+     *
+     * @param scheduler the scheduler
+     */
+    void attach(ProcessScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns whether the thread of the process has been started.
+     *
+     * @return {@code true} if the process has been started.
+     */
+    boolean isStarted() {
+        return this.started;
+    }
+
+    /**
+     * Starts the body of the process on a new thread. Called by the
+     * scheduler on the first activation.
+     *
+     * @param threads the factory to create the thread with
+     */
+    void start(ThreadFactory threads) {
+        this.started = true;
+        threads.newThread(() -> {
+            try {
+                this.body();
+            } catch (Throwable t) {
+                this.scheduler.fail(t);
+            } finally {
+                this.scheduler.yieldControl(); // the process has terminated
+            }
+        }).start();
+    }
+
+    /**
+     * Resumes a suspended process. Called by the scheduler.
+     */
+    void resume() {
+        this.resumed.release();
+    }
+
+    /**
+     * Hands control back to the scheduler and waits to be resumed.
+     */
+    private void suspend() {
+        this.scheduler.yieldControl();
+        this.resumed.acquireUninterruptibly();
+    }
+}
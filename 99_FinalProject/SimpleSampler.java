@@ -0,0 +1,46 @@
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A Sampler defined by its inverse distribution function, used for
+ * the parametric Samplers created by the static methods of the
+ * Sampler interface.
+ */
+class SimpleSampler implements Sampler {
+
+    private final String spec;
+    private final double mean;
+    private final DoubleUnaryOperator inverse;
+
+    /**
+     * Constructs a SimpleSampler with all parameters specified.
+     *
+     * @param spec the canonical specification
+     * @param mean the mean of the distribution
+     * @param inverse the inverse distribution function
+     */
+    SimpleSampler(String spec, double mean, DoubleUnaryOperator inverse) {
+        this.spec = spec;
+        this.mean = mean;
+        this.inverse = inverse;
+    }
+
+    @Override
+    public double draw(double u) {
+        return this.inverse.applyAsDouble(u);
+    }
+
+    @Override
+    public double mean() {
+        return this.mean;
+    }
+
+    @Override
+    public String spec() {
+        return this.spec;
+    }
+
+    @Override
+    public String toString() {
+        return this.spec;
+    }
+}
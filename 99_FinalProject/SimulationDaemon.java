@@ -0,0 +1,294 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A SimulationDaemon is a long-lived JVM that runs jobs of the Main
+ * class, so that a pipeline running thousands of small scenarios
+ * pays for JVM startup, class loading and JIT compilation once
+ * instead of once per scenario:
+ *
+ * <pre>
+ * java SimulationDaemon [--socket=PATH] [--threads=N] [--warmup=N]
+ * </pre>
+ *
+ * <p>Jobs are read from standard input, or from every connection to
+ * a Unix-domain socket at PATH, framed as a header line followed by
+ * the input of the job:
+ *
+ * <pre>
+ * JOB id length [args...]
+ * &lt;length bytes of input, as read by Main&gt;
+ * </pre>
+ *
+ * <p>where args are those of Main, and length may be 0 when args
+ * name a trace file. Each job runs on a bounded pool as soon as it
+ * is read, and its result is written back, to the same stream, as
+ * soon as it is done, so results may come back out of order:
+ *
+ * <pre>
+ * RESULT id length
+ * &lt;length bytes of output, as printed by Main&gt;
+ * </pre>
+ *
+ * <p>or {@code ERROR id length} followed by a message, which is
+ * also the answer to a job whose input is cut short by the end of
+ * the stream. When the pool and its queue are full, the reader runs
+ * the job itself, which stops it reading more until the pool catches
+ * up. The daemon stops once standard input is closed and its jobs
+ * are done; a socket connection is closed by the client, or by a
+ * {@code QUIT} line.
+ */
+class SimulationDaemon {
+
+    private static final int QUEUE_PER_THREAD = 4;
+    private static final String WARMUP_INPUT = "2 2 2 0.5\n"
+        + "0.5\n0.6\n0.7\n1.5\n1.6\n1.7\n2.5\n2.6\n2.7\n3.5\n3.6\n3.7\n";
+
+    private final ExecutorService pool;
+
+    /**
+     * Constructs a SimulationDaemon with a pool of the given size.
+     *
+     * @param threads the number of jobs run at once
+     */
+    SimulationDaemon(int threads) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String socket = SimulationDaemon.option(args, "--socket=", null);
+        int threads = Integer.parseInt(SimulationDaemon.option(args, "--threads=",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int warmup = Integer.parseInt(SimulationDaemon.option(args, "--warmup=", "2000"));
+
+        SimulationDaemon daemon = new SimulationDaemon(threads);
+        daemon.warmUp(warmup);
+        if (socket == null) {
+            try {
+                daemon.serve(System.in, System.out);
+            } finally {       // or the pool's threads keep the JVM alive
+                daemon.shutdown();
+            }
+        } else {
+            daemon.listen(Paths.get(socket));
+        }
+    }
+
+    /**
+     * Returns the value of an option, or a default.
+     */
+    private static String option(String[] args, String prefix, String otherwise) {
+        return Arrays.stream(args)
+            .filter(arg -> arg.startsWith(prefix))
+            .map(arg -> arg.substring(prefix.length()))
+            .reduce((first, last) -> last)
+            .orElse(otherwise);
+    }
+
+    /**
+     * Runs a small job the given number of times, so that the
+     * simulation is compiled before the first real job arrives.
+     *
+     * @param rounds the number of times to run the job
+     * @throws IOException never, as the input is in memory
+     */
+    void warmUp(int rounds) throws IOException {
+        byte[] input = WARMUP_INPUT.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < rounds; i++) {
+            Main.run(new String[0], new ByteArrayInputStream(input));
+        }
+    }
+
+    /**
+     * Accepts connections on a Unix-domain socket, serving each on
+     * a thread of its own, until the JVM is stopped.
+     *
+     * @param path the path of the socket
+     * @throws IOException if the socket cannot be bound
+     */
+    void listen(Path path) throws IOException {
+        Files.deleteIfExists(path);     // left behind by an earlier daemon
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(path));
+            path.toFile().deleteOnExit();
+            while (true) {
+                SocketChannel client = server.accept();
+                Thread connection = new Thread(() -> {
+                    try (client) {
+                        this.serve(SimulationDaemon.input(client),
+                                SimulationDaemon.output(client));
+                    } catch (IOException e) {
+                        // the client has gone
+                    }
+                }, "connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }
+    }
+
+    /**
+     * Reads and submits jobs from a stream until it ends, writing
+     * each result to the given output as it is done. Returns once
+     * all the jobs read have been written back.
+     *
+     * @param in the stream of jobs
+     * @param out the stream of results
+     * @throws IOException if the stream of jobs cannot be read
+     */
+    void serve(InputStream in, OutputStream out) throws IOException {
+        DataInputStream jobs = new DataInputStream(new BufferedInputStream(in));
+        OutputStream results = new BufferedOutputStream(out);
+        Phaser pending = new Phaser(1);    // one party for the reader, one per job
+
+        String header;
+        while ((header = SimulationDaemon.readLine(jobs)) != null) {
+            String[] fields = header.trim().split("\\s+");
+            if (fields[0].equals("QUIT")) {
+                break;
+            } else if (fields.length < 3 || !fields[0].equals("JOB")
+                    || !fields[2].matches("\\d{1,9}")) {
+                SimulationDaemon.write(results, "ERROR", "-", "malformed header: " + header);
+                continue;
+            }
+
+            String id = fields[1];
+            byte[] input = new byte[Integer.parseInt(fields[2])];
+            try {
+                jobs.readFully(input);
+            } catch (EOFException e) {    // the stream ended within the input
+                SimulationDaemon.write(results, "ERROR", id,
+                        "truncated input: expected " + input.length + " bytes");
+                break;
+            }
+            String[] args = Arrays.copyOfRange(fields, 3, fields.length);
+
+            pending.register();
+            this.pool.execute(() -> {
+                try {
+                    String output = Main.run(args, new ByteArrayInputStream(input)) + "\n";
+                    SimulationDaemon.write(results, "RESULT", id, output);
+                } catch (Exception e) {
+                    SimulationDaemon.write(results, "ERROR", id, String.valueOf(e));
+                } finally {
+                    pending.arriveAndDeregister();
+                }
+            });
+        }
+        pending.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Writes one framed result. Results of different jobs are
+     * written whole, one at a time.
+     */
+    private static void write(OutputStream results, String kind, String id, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[] header = (kind + " " + id + " " + bytes.length + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+        synchronized (results) {
+            try {
+                results.write(header);
+                results.write(bytes);
+                results.flush();
+            } catch (IOException e) {
+                // the client has gone; the job's result is dropped
+            }
+        }
+    }
+
+    /**
+     * Reads a header line, or returns null at the end of the stream.
+     *
+     * @param in the stream to read from
+     * @return the line, without its newline.
+     * @throws IOException if the stream cannot be read
+     */
+    static String readLine(DataInputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b = in.read();
+        if (b < 0) {
+            return null;
+        }
+        while (b >= 0 && b != '\n') {
+            line.write(b);
+            b = in.read();
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stops accepting jobs and waits for the running ones.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void shutdown() throws InterruptedException {
+        this.pool.shutdown();
+        this.pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an InputStream reading straight from a channel. The
+     * streams of {@code Channels} would lock the channel for the
+     * whole of a blocking read, holding up results being written
+     * while the reader waits for the next job.
+     */
+    private static InputStream input(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return this.read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    /**
+     * Returns an OutputStream writing straight to a channel.
+     */
+    private static OutputStream output(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                this.write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+}
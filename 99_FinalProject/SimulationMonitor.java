@@ -0,0 +1,204 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A SimulationMonitor exposes the progress of a running
+ * {@link Simulator} as a JMX MBean. The simulate loop does not
+ * write to the monitor on every event; it publishes its state
+ * once every so many events, {@code PUBLISH_INTERVAL} unless given,
+ * and once more at the end of the run, so that watching a run costs
+ * next to nothing.
+ *
+ * <p>Unlike most classes in this project, the monitor is mutable by
+ * design. It is the only channel through which a running
+ * simulation is observed from another thread. Each publication is
+ * a single immutable {@link SimulationSnapshot}, written with
+ * release semantics through a VarHandle and read with acquire
+ * semantics, so a reader on any thread always sees every field of
+ * one and the same snapshot, without a lock on either side.
+ */
+public class SimulationMonitor implements SimulationMonitorMBean {
+
+    static final int PUBLISH_INTERVAL = 1024;
+
+    private static final String OBJECT_NAME = "DES:type=SimulationMonitor";
+    private static final AtomicLong RUNS = new AtomicLong();
+
+    private static final VarHandle SNAPSHOT;
+
+    static {
+        try {
+            SNAPSHOT = MethodHandles.lookup().findVarHandle(SimulationMonitor.class,
+                    "snapshot", SimulationSnapshot.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int interval;
+    private SimulationSnapshot snapshot = SimulationSnapshot.EMPTY; // through SNAPSHOT only
+    private long lastPublishNanos = System.nanoTime();   // of the simulating thread only
+    private volatile TraceTail tail;
+    private ObjectName name;    // while registered
+
+    /**
+     * Constructs a SimulationMonitor published to every
+     * {@code PUBLISH_INTERVAL} events.
+     */
+    public SimulationMonitor() {
+        this(PUBLISH_INTERVAL);
+    }
+
+    /**
+     * Constructs a SimulationMonitor published to every given
+     * number of events.
+     *
+     * @param interval the number of events between publications
+     * @throws IllegalArgumentException if interval is not positive.
+     */
+    public SimulationMonitor(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Publish interval " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * Registers this monitor with the platform MBean server under
+     * the name {@code DES:type=SimulationMonitor,run=N}, where N
+     * counts the monitors registered in this JVM, so that the runs
+     * of a long-lived JVM can each be watched.
+     *
+     * @return this monitor, for chaining.
+     * @throws IllegalStateException if the registration fails.
+     */
+    public SimulationMonitor register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME + ",run=" + RUNS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            this.name = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register " + OBJECT_NAME, e);
+        }
+        return this;
+    }
+
+    /**
+     * Unregisters this monitor from the platform MBean server, once
+     * its run is over. Does nothing if it is not registered.
+     */
+    public void unregister() {
+        ObjectName registered = this.name;
+        this.name = null;
+        if (registered == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (JMException e) {
+            // unregistered already, by someone else
+        }
+    }
+
+    /**
+     * Attaches the tail of the output of the run, so that it can be
+     * dumped through the MBean while the run is still going.
+     *
+     * @param tail the TraceTail of the run
+     * @return this monitor, for chaining.
+     */
+    public SimulationMonitor attach(TraceTail tail) {
+        this.tail = tail;
+        return this;
+    }
+
+    /**
+     * Returns the number of events between publications.
+     *
+     * @return {@code int} value of the publish interval.
+     */
+    int interval() {
+        return this.interval;
+    }
+
+    /**
+     * Publishes the current state of a simulation. Called by the
+     * simulate method of the Simulator class, on one thread only.
+     *
+     * @param time the timestamp of the most recently processed event
+     * @param events the total number of events processed so far
+     * @param servers the current list of servers and self-checkouts
+     * @param stats the statistics of the events processed so far
+     * @param pending the number of events in the queue
+     * @return this monitor.
+     */
+    SimulationMonitor publish(double time, long events, ImList<Server> servers,
+            SimulationStats stats, int pending) {
+        long now = System.nanoTime();
+        long elapsed = now - this.lastPublishNanos;
+        SimulationSnapshot previous = this.snapshot;   // its own write, so no fence
+
+        double rate = elapsed > 0
+            ? (events - previous.eventsProcessed()) * 1e9 / elapsed
+            : previous.eventsPerSecond();
+        SNAPSHOT.setRelease(this,
+                new SimulationSnapshot(time, events, rate, servers, stats, pending));
+        this.lastPublishNanos = now;
+        return this;
+    }
+
+    /**
+     * Returns the most recently published snapshot of the run,
+     * without waiting for the simulation or holding it up.
+     *
+     * @return the latest {@code SimulationSnapshot}.
+     */
+    public SimulationSnapshot snapshot() {
+        return (SimulationSnapshot) SNAPSHOT.getAcquire(this);
+    }
+
+    @Override
+    public double getSimulatedTime() {
+        return this.snapshot().simulatedTime();
+    }
+
+    @Override
+    public long getEventsProcessed() {
+        return this.snapshot().eventsProcessed();
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        return this.snapshot().eventsPerSecond();
+    }
+
+    @Override
+    public int[] getQueueLengths() {
+        return this.snapshot().queueLengths();
+    }
+
+    @Override
+    public int getServedCount() {
+        return this.snapshot().stats().served();
+    }
+
+    @Override
+    public int getLeftCount() {
+        return this.snapshot().stats().left();
+    }
+
+    @Override
+    public double getAverageWait() {
+        return this.snapshot().stats().averageWait();
+    }
+
+    @Override
+    public String dumpTail() {
+        TraceTail current = this.tail;
+        return current == null ? "" : current.dump();
+    }
+}
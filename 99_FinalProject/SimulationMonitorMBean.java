@@ -0,0 +1,71 @@
+/**
+ * The management interface of a {@link SimulationMonitor}. All
+ * attributes are read-only views of the most recently published
+ * {@link SimulationSnapshot} of a running simulation, so that a
+ * JMX console such as JConsole or VisualVM can watch a long run
+ * while it is still in progress.
+ */
+public interface SimulationMonitorMBean {
+
+    /**
+     * Returns the timestamp of the most recently processed event.
+     *
+     * @return {@code double} value of the current simulated time.
+     */
+    double getSimulatedTime();
+
+    /**
+     * Returns the total number of events processed so far,
+     * including non-first WaitEvents.
+     *
+     * @return {@code long} value of the number of events processed.
+     */
+    long getEventsProcessed();
+
+    /**
+     * Returns the rate at which events were processed between the
+     * two most recent publications, in events per wall-clock second.
+     *
+     * @return {@code double} value of the processing rate.
+     */
+    double getEventsPerSecond();
+
+    /**
+     * Returns the queue length of every server and self-checkout
+     * counter, indexed by {@code serverId - 1}.
+     *
+     * @return {@code int[]} of queue lengths.
+     */
+    int[] getQueueLengths();
+
+    /**
+     * Returns the running number of customers served.
+     *
+     * @return {@code int} value of the number of customers served.
+     */
+    int getServedCount();
+
+    /**
+     * Returns the running number of customers who left.
+     *
+     * @return {@code int} value of the number of customers who left.
+     */
+    int getLeftCount();
+
+    /**
+     * Returns the running average waiting time of the customers
+     * served.
+     *
+     * @return {@code double} value of the average wait so far.
+     */
+    double getAverageWait();
+
+    /**
+     * Returns the last lines of the output of the run, as kept by
+     * the {@link TraceTail} attached to the monitor, or an empty
+     * String if none is.
+     *
+     * @return the String of the last lines.
+     */
+    String dumpTail();
+}
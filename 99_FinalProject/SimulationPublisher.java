@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code Flow.Publisher} of the Events of a {@link Simulator},
+ * delivered in batches of at most {@code batchSize} Events. Every
+ * subscriber gets its own pass through the simulation, which runs
+ * on the publisher's executor and is driven entirely by demand:
+ * the simulation only advances far enough to fill the batches a
+ * subscriber has requested, so a slow subscriber throttles the
+ * simulation instead of having the whole trace buffered for it.
+ *
+ * <p>As in {@code SubmissionPublisher}, the executor defaults to
+ * {@code ForkJoinPool.commonPool()}.
+ */
+public class SimulationPublisher implements Flow.Publisher<ImList<Event>> {
+
+    private final Simulator simulator;
+    private final int batchSize;
+    private final Executor executor;
+
+    /**
+     * Constructs a SimulationPublisher that runs on the given
+     * executor.
+     *
+     * @param simulator the Simulator whose Events are published
+     * @param batchSize the maximum number of Events per batch
+     * @param executor the executor the simulation runs on
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public SimulationPublisher(Simulator simulator, int batchSize, Executor executor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.simulator = simulator;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs a SimulationPublisher that runs on the common
+     * fork-join pool.
+     *
+     * @param simulator the Simulator whose Events are published
+     * @param batchSize the maximum number of Events per batch
+     */
+    public SimulationPublisher(Simulator simulator, int batchSize) {
+        this(simulator, batchSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Subscribes to a fresh pass through the simulation.
+     *
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ImList<Event>> subscriber) {
+        BatchSubscription subscription = new BatchSubscription(subscriber,
+                this.simulator.iterator());
+        subscriber.onSubscribe(subscription);
+        subscription.schedule(); // an empty simulation completes straight away
+    }
+
+    /**
+     * The subscription of one subscriber. All signals to the
+     * subscriber are sent from a single drain loop on the executor;
+     * the {@code wip} counter makes sure at most one drain loop runs
+     * at a time and that none of the demand requested while it runs
+     * is missed.
+     */
+    private final class BatchSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ImList<Event>> subscriber;
+        private final Iterator<Event> events;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable invalidRequest;
+
+        private BatchSubscription(Flow.Subscriber<? super ImList<Event>> subscriber,
+                Iterator<Event> events) {
+            this.subscriber = subscriber;
+            this.events = events;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.invalidRequest = new IllegalArgumentException(
+                        "non-positive request: " + n);
+            } else {
+                this.demand.getAndAccumulate(n, (current, added) ->
+                        current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            this.schedule();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        /**
+         * Starts a drain loop on the executor unless one is already
+         * running.
+         */
+        private void schedule() {
+            if (this.wip.getAndIncrement() == 0) {
+                SimulationPublisher.this.executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Delivers as many batches as have been requested, and
+         * completes the subscriber once the simulation has ended.
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                long requested = this.demand.get();
+                long emitted = 0;
+
+                while (!this.cancelled && emitted != requested && this.events.hasNext()) {
+                    ImList<Event> batch;
+                    try {
+                        batch = this.nextBatch();
+                    } catch (RuntimeException e) {
+                        this.terminate(e);
+                        return;
+                    }
+                    this.subscriber.onNext(batch);
+                    emitted++;
+                }
+
+                if (this.cancelled) {
+                    return;
+                }
+                if (this.invalidRequest != null) {
+                    this.terminate(this.invalidRequest);
+                    return;
+                }
+                if (!this.events.hasNext()) {
+                    this.cancelled = true;
+                    this.subscriber.onComplete();
+                    return;
+                }
+                if (emitted != 0 && requested != Long.MAX_VALUE) {
+                    this.demand.addAndGet(-emitted);
+                }
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Simulates up to batchSize more Events.
+         */
+        private ImList<Event> nextBatch() {
+            List<Event> batch = new ArrayList<Event>(SimulationPublisher.this.batchSize);
+            while (batch.size() < SimulationPublisher.this.batchSize
+                    && this.events.hasNext()) {
+                batch.add(this.events.next());
+            }
+            return new ImList<Event>(batch);
+        }
+
+        /**
+         * Cancels the subscription and signals an error.
+         */
+        private void terminate(Throwable cause) {
+            this.cancelled = true;
+            this.subscriber.onError(cause);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * A SimulationRun is a single pass through a simulation, exposed as
+ * an {@code Iterator} over the Events it polls. Each call to
+ * {@code next} polls exactly one Event from the PQ, generates its
+ * next event, updates the servers and the running statistics, and
+ * returns the polled Event. Nothing is simulated beyond what has
+ * been consumed, so a caller may stop at any point.
+ *
+ * <p>The ArriveEvents are not put into the {@link EventQueue} up
+ * front. They are instead merged into the stream of polled events
+ * one at a time, in order of arrival, so the queue only ever holds
+ * the events of the customers currently in the shop. If the arrival
+ * times are not in non-decreasing order, as they are in all the
+ * test inputs, the order of arrival is sorted out at the start.
+ */
+class SimulationRun implements Iterator<Event> {
+
+    private final ArrivalTimes arrivalTimes;
+    private final IntFunction<Supplier<Double>> serviceTimes;
+    private final SimulationMonitor monitor;
+    private final SimulationRunRecord runRecord = new SimulationRunRecord();
+    private final boolean counting;
+    private final TimeWeightedStats timeWeighted;      // null if not asked for
+    private final PerturbationAnalysis perturbation;   // null if not asked for
+    private final EventLoopProfile profile;            // null if not asked for
+    private final Abandonment abandonment;
+    private final IndexedEventQueue cancellable;       // the PQ, if anyone reneges
+    private final Map<Integer, Integer> waitHandles =  // of each waiting customer's
+        new HashMap<Integer, Integer>();               // pending WaitEvent
+    private final Map<Integer, Integer> renegeHandles = // and RenegeEvent
+        new HashMap<Integer, Integer>();
+
+    private final EventQueue pq;
+    private final int[] arrivalOrder;    // indices in order of arrival, null if sorted
+    private ImList<Server> serverList;
+    private Dispatcher dispatcher;
+    private int nextArrival = 0;         // number of customers arrived
+    private int servedNumber = 0;        // number of customers served
+    private int leftNumber = 0;          // number of customers left
+    private int renegedNumber = 0;       // number of customers reneged
+    private int balkedNumber = 0;        // number of customers balked
+    private double totalWaitingTime = 0.0;
+    private long eventsProcessed = 0;    // number of events polled
+    private long nextPublish;            // events processed at the next publication
+    private double currentTime = 0.0;    // timestamp of the last event polled
+
+    /**
+     * Constructs a SimulationRun.
+     *
+     * @param arrivalTimes the customer arrival times
+     * @param serviceTimes the supplier of service times of each customerId
+     * @param serverList the initial list of servers and self-checkouts
+     * @param policy the policy arriving customers are dispatched by
+     * @param monitor the monitor to publish to, or null for none
+     * @param pq the empty queue to hold the pending events
+     * @param timeWeighted the statistics to integrate the servers'
+     *     states into, or null for none
+     * @param perturbation the analysis to propagate derivatives
+     *     through, or null for none
+     * @param profile the profile to time the loop into, or null for
+     *     none
+     * @param abandonment how customers renege and balk; if they
+     *     renege, pq must be an {@link IndexedEventQueue}
+     */
+    SimulationRun(ArrivalTimes arrivalTimes, IntFunction<Supplier<Double>> serviceTimes,
+            ImList<Server> serverList, DispatchPolicy policy, SimulationMonitor monitor,
+            EventQueue pq, TimeWeightedStats timeWeighted, PerturbationAnalysis perturbation,
+            EventLoopProfile profile, Abandonment abandonment) {
+        this.arrivalTimes = arrivalTimes;
+        this.serviceTimes = serviceTimes;
+        this.serverList = serverList;
+        this.dispatcher = policy.dispatcher(serverList);
+        this.monitor = monitor;
+        this.nextPublish = monitor == null ? -1 : monitor.interval();
+        this.pq = pq;
+        this.counting = this.runRecord.isEnabled(); // only count while recording
+        this.timeWeighted = timeWeighted;
+        this.perturbation = perturbation;
+        this.profile = profile;
+        this.abandonment = abandonment;
+        this.cancellable = abandonment.isEnabled() ? (IndexedEventQueue) pq : null;
+
+        if (arrivalTimes.isSorted()) {
+            this.arrivalOrder = null;
+        } else {   // by arrival time, then by customerId, as in the EventComp
+            this.arrivalOrder = IntStream.range(0, arrivalTimes.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> arrivalTimes.get(i))
+                        .thenComparingInt(i -> i))
+                .mapToInt(i -> i)
+                .toArray();
+        }
+        this.runRecord.begin();
+    }
+
+    /**
+     * Returns the ArriveEvent of the customer at the given index of
+     * the arrival times. Customer ids start from 1.
+     */
+    private Event makeArrival(int index) {
+        double arrival = this.arrivalTimes.get(index);
+        Customer customer = new Customer(index + 1, arrival,
+                this.serviceTimes.apply(index + 1));
+        return new ArriveEvent(arrival, customer, this.dispatcher,
+                this.abandonment.balkAt());
+    }
+
+    /**
+     * Returns {@code true} if there are still events to be polled.
+     *
+     * @return {@code true} if the simulation has not ended.
+     */
+    @Override
+    public boolean hasNext() {
+        return !this.pq.isEmpty() || this.nextArrival < this.arrivalTimes.size();
+    }
+
+    /**
+     * Polls the next Event, processes it and returns it. Non-first
+     * WaitEvents are returned as well, even though their String
+     * representation is empty.
+     *
+     * @return the Event polled.
+     * @throws NoSuchElementException if the simulation has ended.
+     */
+    @Override
+    public Event next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        if (this.profile != null) {
+            this.profile.begin();
+        }
+        Event currentEvent = this.poll();
+        if (this.profile != null) {
+            this.profile.polled();
+        }
+        if (this.cancellable != null) {
+            this.release(currentEvent);
+        }
+
+        EventProcessedRecord eventRecord = new EventProcessedRecord();
+        eventRecord.begin();
+
+        Pair<Event, ImList<Server>> eventServerPair = // Generate nextEvent
+            currentEvent.nextEvent(this.serverList);
+
+        eventRecord.end();
+        if (this.profile != null) {
+            this.profile.generated(currentEvent);
+        }
+        if (eventRecord.shouldCommit()) {
+            eventRecord.eventType = currentEvent.getClass().getSimpleName();
+            eventRecord.simulatedTime = currentEvent.getTimeStamp();
+            eventRecord.customerId = currentEvent.getCustomer().getCustomerId();
+            eventRecord.queueDepth = this.pq.size();
+            eventRecord.commit();
+        }
+
+        Event nextEvent = eventServerPair.first();
+        if (this.cancellable != null) {
+            this.schedule(currentEvent, nextEvent);
+        } else if (!currentEvent.equals(nextEvent)) {
+            this.pq.add(nextEvent); // Add next event back to PQ if not the same event
+        }
+        if (this.profile != null) {
+            this.profile.end(this.pq.size());
+        }
+
+        this.totalWaitingTime += currentEvent.waitAdd(); // All statistics updated
+        this.servedNumber += currentEvent.add();
+        this.leftNumber += currentEvent.left();
+        if (currentEvent instanceof RenegeEvent) {
+            this.renegedNumber++;
+        } else if (currentEvent instanceof BalkEvent) {
+            this.balkedNumber++;
+        }
+        this.serverList = eventServerPair.second();  // list of servers is updated
+        if (this.timeWeighted != null) {
+            this.timeWeighted.update(currentEvent, nextEvent, this.serverList);
+        }
+        if (this.perturbation != null) {
+            this.perturbation.update(currentEvent, nextEvent, this.serverList);
+        }
+        this.dispatcher = this.dispatcher.refresh(this.serverList, currentEvent, nextEvent);
+        this.currentTime = currentEvent.getTimeStamp();
+        this.eventsProcessed++;
+
+        if (this.counting) {
+            this.runRecord.count(currentEvent);
+            this.runRecord.maxQueueDepth = Math.max(this.runRecord.maxQueueDepth,
+                    this.pq.size());
+        }
+
+        if (this.eventsProcessed == this.nextPublish) {   // never, without a monitor
+            this.nextPublish += this.monitor.interval();
+            this.monitor.publish(this.currentTime, this.eventsProcessed,
+                    this.serverList, this.statistics(), this.pq.size());
+        }
+
+        if (!this.hasNext()) {
+            this.finish();
+        }
+        return currentEvent;
+    }
+
+    /**
+     * Forgets the handle of a polled WaitEvent or RenegeEvent. A
+     * customer who reneges no longer waits, so its pending
+     * WaitEvent is cancelled.
+     */
+    private void release(Event polled) {
+        int customerId = polled.getCustomer().getCustomerId();
+        if (polled instanceof WaitEvent) {
+            this.waitHandles.remove(customerId);
+        } else if (polled instanceof RenegeEvent) {
+            this.renegeHandles.remove(customerId);
+            Integer wait = this.waitHandles.remove(customerId);
+            if (wait != null) {
+                this.cancellable.cancel(wait);
+            }
+        }
+    }
+
+    /**
+     * Adds the event generated to the cancellable PQ, keeping the
+     * handle of every WaitEvent. A customer who starts to wait is
+     * also scheduled to renege when its patience runs out, and that
+     * RenegeEvent is cancelled if it is served first.
+     */
+    private void schedule(Event current, Event next) {
+        Customer customer = current.getCustomer();
+        int customerId = customer.getCustomerId();
+
+        if (next instanceof WaitEvent) {
+            this.waitHandles.put(customerId, this.cancellable.schedule(next));
+            if (current instanceof ArriveEvent) {
+                double renegeTime = this.abandonment.renegeTime(customer,
+                        current.getTimeStamp());
+                if (renegeTime < Double.POSITIVE_INFINITY) {
+                    this.renegeHandles.put(customerId, this.cancellable.schedule(
+                                new RenegeEvent(renegeTime, customer, next.getServer())));
+                }
+            }
+        } else if (!current.equals(next)) {
+            if (next instanceof ServeEvent) {
+                Integer renege = this.renegeHandles.remove(customerId);
+                if (renege != null) {
+                    this.cancellable.cancel(renege);
+                }
+            }
+            this.cancellable.schedule(next);
+        }
+    }
+
+    /**
+     * Removes and returns the earliest pending event: either the
+     * head of the PQ or the ArriveEvent of the next customer,
+     * whichever comes first in the order of the EventComp.
+     */
+    private Event poll() {
+        if (this.nextArrival < this.arrivalTimes.size()) {
+            int index = this.arrivalOrder == null
+                ? this.nextArrival : this.arrivalOrder[this.nextArrival];
+
+            if (!this.pq.firstBefore(this.arrivalTimes.get(index), index + 1)) {
+                this.nextArrival++;
+                return this.makeArrival(index);
+            }
+        }
+        return this.pq.poll();
+    }
+
+    /**
+     * Commits the run record and publishes the final state of the
+     * run. Called once, after the last event has been processed.
+     */
+    private void finish() {
+        this.runRecord.end();
+        this.runRecord.commit();
+
+        if (this.monitor != null) {
+            this.monitor.publish(this.currentTime, this.eventsProcessed,
+                    this.serverList, this.statistics(), this.pq.size());
+        }
+    }
+
+    /**
+     * Returns the statistics of the events processed so far.
+     *
+     * @return the {@code SimulationStats} of the run so far.
+     */
+    SimulationStats statistics() {
+        if (this.abandonment.isEnabled()) {
+            return new SimulationStats(this.totalWaitingTime, this.servedNumber,
+                    this.leftNumber, this.renegedNumber, this.balkedNumber);
+        }
+        return new SimulationStats(this.totalWaitingTime, this.servedNumber,
+                this.leftNumber);
+    }
+
+    /**
+     * Returns the time-weighted statistics of the events processed
+     * so far, if the run was asked to keep them. They are kept up to
+     * date as the run goes on.
+     *
+     * @return the {@code TimeWeightedStats} of the run so far, or null.
+     */
+    TimeWeightedStats timeWeighted() {
+        return this.timeWeighted;
+    }
+
+    /**
+     * Returns the analysis the run propagates derivatives through,
+     * if it was asked to. Its derivatives are those of the events
+     * processed so far.
+     *
+     * @return the {@code PerturbationAnalysis} of the run, or null.
+     */
+    PerturbationAnalysis perturbation() {
+        return this.perturbation;
+    }
+
+    /**
+     * Returns the profile the run times its loop into, if it was
+     * asked to.
+     *
+     * @return the {@code EventLoopProfile} of the run, or null.
+     */
+    EventLoopProfile profile() {
+        return this.profile;
+    }
+}
@@ -0,0 +1,59 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event committed once at the end of every
+ * call to the simulate method of the Simulator class. It spans the
+ * whole run and carries the number of events processed per event
+ * type together with the deepest the PQ ever got.
+ *
+ * <p>The per-type counters are only maintained while this event is
+ * enabled in a running recording.
+ */
+@Name("des.SimulationRun")
+@Label("Simulation Run")
+@Category("Discrete Event Simulator")
+@Description("Event-type counts and PQ depth of a whole simulation run")
+@StackTrace(false)
+class SimulationRunRecord extends jdk.jfr.Event {
+
+    @Label("Arrive Events")
+    long arriveEvents;
+
+    @Label("Serve Events")
+    long serveEvents;
+
+    @Label("Wait Events")
+    long waitEvents;
+
+    @Label("Done Events")
+    long doneEvents;
+
+    @Label("Leave Events")
+    long leaveEvents;
+
+    @Label("Max PQ Depth")
+    int maxQueueDepth;
+
+    /**
+     * Counts an Event against its event type.
+     *
+     * @param event the Event that was processed
+     */
+    void count(Event event) {
+        if (event instanceof ArriveEvent) {
+            this.arriveEvents++;
+        } else if (event instanceof ServeEvent) {
+            this.serveEvents++;
+        } else if (event instanceof WaitEvent) {
+            this.waitEvents++;
+        } else if (event instanceof DoneEvent) {
+            this.doneEvents++;
+        } else if (event instanceof LeaveEvent) {
+            this.leaveEvents++;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * A SimulationSnapshot is a consistent, point-in-time view of a
+ * running simulation, as published by its {@link SimulationMonitor}:
+ * the simulated time, the number of events processed, the servers,
+ * the statistics so far and the number of pending events, all as
+ * they were after the same event.
+ *
+ * <p>A snapshot is immutable, as are the ImList of servers and the
+ * SimulationStats it holds, so another thread can read it at its
+ * leisure while the simulation carries on.
+ */
+public class SimulationSnapshot {
+
+    static final SimulationSnapshot EMPTY = new SimulationSnapshot(0.0, 0L, 0.0,
+            new ImList<Server>(), new SimulationStats(0.0, 0, 0), 0); // before any publish
+
+    private final double simulatedTime;
+    private final long eventsProcessed;
+    private final double eventsPerSecond;
+    private final ImList<Server> servers;
+    private final SimulationStats stats;
+    private final int pendingEvents;
+
+    /**
+     * Constructs a SimulationSnapshot with all parameters specified.
+     *
+     * @param simulatedTime the timestamp of the last event processed
+     * @param eventsProcessed the number of events processed
+     * @param eventsPerSecond the processing rate since the previous snapshot
+     * @param servers the list of servers and self-checkouts
+     * @param stats the statistics of the events processed
+     * @param pendingEvents the number of events in the queue
+     */
+    SimulationSnapshot(double simulatedTime, long eventsProcessed, double eventsPerSecond,
+            ImList<Server> servers, SimulationStats stats, int pendingEvents) {
+        this.simulatedTime = simulatedTime;
+        this.eventsProcessed = eventsProcessed;
+        this.eventsPerSecond = eventsPerSecond;
+        this.servers = servers;
+        this.stats = stats;
+        this.pendingEvents = pendingEvents;
+    }
+
+    /**
+     * Returns the timestamp of the last event processed.
+     *
+     * @return {@code double} value of the simulated time.
+     */
+    public double simulatedTime() {
+        return this.simulatedTime;
+    }
+
+    /**
+     * Returns the number of events processed, including non-first
+     * WaitEvents.
+     *
+     * @return {@code long} value of the number of events processed.
+     */
+    public long eventsProcessed() {
+        return this.eventsProcessed;
+    }
+
+    /**
+     * Returns the rate at which events were processed since the
+     * previous snapshot, in events per wall-clock second.
+     *
+     * @return {@code double} value of the processing rate.
+     */
+    public double eventsPerSecond() {
+        return this.eventsPerSecond;
+    }
+
+    /**
+     * Returns the list of servers and self-checkouts.
+     *
+     * @return the {@code ImList<Server>} of the servers.
+     */
+    public ImList<Server> servers() {
+        return this.servers;
+    }
+
+    /**
+     * Returns the queue length of every server and self-checkout
+     * counter, indexed by {@code serverId - 1}.
+     *
+     * @return {@code int[]} of queue lengths.
+     */
+    public int[] queueLengths() {
+        int[] lengths = new int[this.servers.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = this.servers.get(i).getServerQ();
+        }
+        return lengths;
+    }
+
+    /**
+     * Returns the statistics of the events processed.
+     *
+     * @return the partial {@code SimulationStats}.
+     */
+    public SimulationStats stats() {
+        return this.stats;
+    }
+
+    /**
+     * Returns the number of events waiting in the queue.
+     *
+     * @return {@code int} value of the number of pending events.
+     */
+    public int pendingEvents() {
+        return this.pendingEvents;
+    }
+
+    /**
+     * Returns a one-line report of the snapshot.
+     *
+     * @return the String representation of the snapshot.
+     */
+    @Override
+    public String toString() {
+        return String.format("t=%.3f events=%d pending=%d %s", this.simulatedTime,
+                this.eventsProcessed, this.pendingEvents, this.stats);
+    }
+}
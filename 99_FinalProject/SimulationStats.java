@@ -0,0 +1,157 @@
+/**
+ * An immutable summary of a simulation: the total waiting time of
+ * the customers served, the number of customers served and the
+ * number of customers who left without being served. Its String
+ * representation is the final line of the output of the simulate
+ * method of the Simulator class.
+ *
+ * <p>If customers could renege or balk, the numbers of customers
+ * who did are kept as well, apart from those who left because every
+ * queue was full, and are appended to the String representation.
+ */
+public class SimulationStats {
+
+    private final double totalWaitingTime;
+    private final int servedNumber;
+    private final int leftNumber;
+    private final int renegedNumber;
+    private final int balkedNumber;
+    private final boolean abandonment;    // if customers could renege or balk
+
+    /**
+     * Constructs a SimulationStats of a simulation in which no
+     * customer could renege or balk.
+     *
+     * @param totalWaitingTime the total waiting time
+     * @param servedNumber the number of customers served
+     * @param leftNumber the number of customers who left
+     */
+    public SimulationStats(double totalWaitingTime, int servedNumber, int leftNumber) {
+        this(totalWaitingTime, servedNumber, leftNumber, 0, 0, false);
+    }
+
+    /**
+     * Constructs a SimulationStats of a simulation in which
+     * customers could renege or balk.
+     *
+     * @param totalWaitingTime the total waiting time
+     * @param servedNumber the number of customers served
+     * @param leftNumber the number of customers who left
+     * @param renegedNumber the number of customers who reneged
+     * @param balkedNumber the number of customers who balked
+     */
+    public SimulationStats(double totalWaitingTime, int servedNumber, int leftNumber,
+            int renegedNumber, int balkedNumber) {
+        this(totalWaitingTime, servedNumber, leftNumber, renegedNumber, balkedNumber, true);
+    }
+
+    /**
+     * Constructs a SimulationStats with all parameters specified.
+     */
+    private SimulationStats(double totalWaitingTime, int servedNumber, int leftNumber,
+            int renegedNumber, int balkedNumber, boolean abandonment) {
+        this.totalWaitingTime = totalWaitingTime;
+        this.servedNumber = servedNumber;
+        this.leftNumber = leftNumber;
+        this.renegedNumber = renegedNumber;
+        this.balkedNumber = balkedNumber;
+        this.abandonment = abandonment;
+    }
+
+    /**
+     * Returns the average waiting time per customer served, or 0 if
+     * nobody waited.
+     *
+     * @return {@code double} value of the average waiting time.
+     */
+    public double averageWait() {
+        if (this.totalWaitingTime > 0) {    // to prevent zero division error
+            return this.totalWaitingTime / this.servedNumber;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Returns the total waiting time of the customers served.
+     *
+     * @return {@code double} value of the total waiting time.
+     */
+    public double totalWait() {
+        return this.totalWaitingTime;
+    }
+
+    /**
+     * Returns the number of customers served.
+     *
+     * @return {@code int} value of the number of customers served.
+     */
+    public int served() {
+        return this.servedNumber;
+    }
+
+    /**
+     * Returns the number of customers who left without being served.
+     *
+     * @return {@code int} value of the number of customers who left.
+     */
+    public int left() {
+        return this.leftNumber;
+    }
+
+    /**
+     * Returns the number of customers who reneged, leaving the queue
+     * once their patience ran out.
+     *
+     * @return {@code int} value of the number of customers who reneged.
+     */
+    public int reneged() {
+        return this.renegedNumber;
+    }
+
+    /**
+     * Returns the number of customers who balked at a queue too
+     * long for them.
+     *
+     * @return {@code int} value of the number of customers who balked.
+     */
+    public int balked() {
+        return this.balkedNumber;
+    }
+
+    /**
+     * Returns {@code true} if customers could renege or balk, so
+     * that those counts are part of the statistics.
+     *
+     * @return {@code true} if abandonment was simulated.
+     */
+    public boolean hasAbandonment() {
+        return this.abandonment;
+    }
+
+    /**
+     * Returns the fraction of customers who left without being
+     * served, or 0 if there were no customers. Customers who
+     * reneged or balked count towards the customers, but not
+     * towards those who left.
+     *
+     * @return {@code double} value of the leave rate.
+     */
+    public double leaveRate() {
+        int total = this.servedNumber + this.leftNumber + this.renegedNumber
+            + this.balkedNumber;
+        return total == 0 ? 0.0 : (double) this.leftNumber / total;
+    }
+
+    /**
+     * Returns the String representation of the statistics, as
+     * {@code [average served left]}, or as
+     * {@code [average served left reneged balked]} if customers
+     * could renege or balk.
+     *
+     * @return the String representation of the statistics.
+     */
+    @Override
+    public String toString() {
+        return new TraceWriter().statistics(this).toString(); // as [%.3f %d %d]
+    }
+}
@@ -1,4 +1,11 @@
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A Discrete Event Simulator that simulates the sequential
@@ -28,14 +35,19 @@ import java.util.function.Supplier;
  * @author Rubesh S
  * @version CS2030 AY22/23 Semester 2
  */
-public class Simulator {
+public class Simulator implements Iterable<Event> {
 
     private final int numOfServers;
     private final int qmax;
     private final int selfChecks;
-    private final ImList<Double> arrivalTimes;
-    private final Supplier<Double> serviceTimes;
-    private final Supplier<Double> restTimes;
+    private final ArrivalTimes arrivalTimes;
+    private final IntFunction<Supplier<Double>> serviceTimes; // by customerId
+    private final IntFunction<Supplier<Double>> restTimes;    // by serverId
+    private final DispatchPolicy policy;
+    private final SimulationMonitor monitor;
+    private final Function<EventCodec, EventQueue> queues; // of pending events
+    private final Abandonment abandonment;
+    private final boolean compiled;   // whether to run a ShopEngine compiled for the shape
 
     /**
      * Constructs the Simulator.
@@ -47,32 +59,166 @@ public class Simulator {
      */
     Simulator(int servers, int selfChecks, int qmax, ImList<Double> arrivalTimes,
             Supplier<Double> serviceTimes, Supplier<Double> restTimes) {
+        this(servers, selfChecks, qmax, ArrivalTimes.of(arrivalTimes), serviceTimes,
+                restTimes);
+    }
+
+    /**
+     * Constructs the Simulator over arrival times that are read in
+     * place, such as those mapped from a {@link TraceFile}.
+     *
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length 
+     * @param arrivalTimes the customer arrival times
+     * @param serviceTimes the supplier of service times.
+     * @param restTimes the supplier of rest times.
+     */
+    Simulator(int servers, int selfChecks, int qmax, ArrivalTimes arrivalTimes,
+            Supplier<Double> serviceTimes, Supplier<Double> restTimes) {
+        this(servers, selfChecks, qmax, arrivalTimes, customerId -> serviceTimes,
+                serverId -> restTimes, DispatchPolicy.firstAvailable(), null,
+                codec -> new PQEventQueue(), Abandonment.none(), false);
+    }
+
+    /**
+     * Constructs the Simulator with a service time supplier of its
+     * own for every customer and a rest time supplier of its own for
+     * every server, so that the random numbers of a customer or
+     * server do not depend on the order in which the simulation
+     * happens to draw them.
+     *
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length 
+     * @param arrivalTimes the list of customer arrival times
+     * @param serviceTimes the supplier of service times of each customerId
+     * @param restTimes the supplier of rest times of each serverId
+     */
+    Simulator(int servers, int selfChecks, int qmax, ImList<Double> arrivalTimes,
+            IntFunction<Supplier<Double>> serviceTimes,
+            IntFunction<Supplier<Double>> restTimes) {
+        this(servers, selfChecks, qmax, ArrivalTimes.of(arrivalTimes), serviceTimes,
+                restTimes, DispatchPolicy.firstAvailable(), null,
+                codec -> new PQEventQueue(), Abandonment.none(), false);
+    }
+
+    /**
+     * Constructs the Simulator with all parameters specified.
+     *
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length 
+     * @param arrivalTimes the customer arrival times
+     * @param serviceTimes the supplier of service times of each customerId
+     * @param restTimes the supplier of rest times of each serverId
+     * @param policy the policy arriving customers are dispatched by
+     * @param monitor the monitor to publish to, or null for none
+     * @param queues the maker of the queue of pending events
+     * @param abandonment how customers renege and balk
+     * @param compiled whether to run a ShopEngine compiled for the shape
+     */
+    private Simulator(int servers, int selfChecks, int qmax, ArrivalTimes arrivalTimes,
+            IntFunction<Supplier<Double>> serviceTimes,
+            IntFunction<Supplier<Double>> restTimes, DispatchPolicy policy,
+            SimulationMonitor monitor, Function<EventCodec, EventQueue> queues,
+            Abandonment abandonment, boolean compiled) {
         this.numOfServers = servers;
         this.qmax = qmax;
         this.selfChecks = selfChecks;
         this.serviceTimes = serviceTimes;
         this.arrivalTimes = arrivalTimes;
         this.restTimes = restTimes;
+        this.policy = policy;
+        this.monitor = monitor;
+        this.queues = queues;
+        this.abandonment = abandonment;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Returns a Simulator identical to this one that dispatches
+     * arriving customers by the given policy.
+     *
+     * @param policy the dispatch policy
+     * @return the Simulator with the given policy
+     */
+    public Simulator withPolicy(DispatchPolicy policy) {
+        return new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, policy, this.monitor,
+                this.queues, this.abandonment, this.compiled);
     }
 
     /**
-     * Returns an ImList of Customers for each arrival time in
-     * arrivalTimes.
+     * Returns a Simulator identical to this one that publishes its
+     * progress to the given monitor while simulating.
      *
-     * @return the list of customers 
+     * @param monitor the monitor to publish to
+     * @return the monitored Simulator
      */
-    private ImList<Customer> makeCustomerList() {
+    public Simulator withMonitor(SimulationMonitor monitor) {
+        return new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, this.policy, monitor,
+                this.queues, this.abandonment, this.compiled);
+    }
 
-        ImList<Customer> customerList = new ImList<Customer>();
-        int custCounter = 1;
+    /**
+     * Returns a Simulator identical to this one that keeps its
+     * pending events outside the Java heap, in an
+     * {@link OffHeapEventQueue}, so that long runs put no pressure
+     * on the garbage collector however many events are pending.
+     *
+     * @return the Simulator with off-heap pending events
+     */
+    public Simulator withOffHeapEvents() {
+        return new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, this.policy,
+                this.monitor, OffHeapEventQueue::new, this.abandonment, this.compiled);
+    }
 
-        for (Double a : arrivalTimes) {
-            customerList = customerList.add(
-                    new Customer(custCounter, a, this.serviceTimes));
-            custCounter++;
-        }
+    /**
+     * Returns a Simulator identical to this one that keeps each of
+     * its pending events as a few primitives in the arrays of a
+     * {@link CompactEventQueue}, rather than as Event objects.
+     *
+     * @return the Simulator with compact pending events
+     */
+    public Simulator withCompactEvents() {
+        return new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, this.policy,
+                this.monitor, CompactEventQueue::new, this.abandonment, this.compiled);
+    }
+
+    /**
+     * Returns a Simulator identical to this one in which customers
+     * renege and balk as the given Abandonment describes. While any
+     * customer may, the pending events are kept in an
+     * {@link IndexedEventQueue}, whose RenegeEvents and WaitEvents can
+     * be cancelled, whatever other queue was asked for.
+     *
+     * @param abandonment how customers renege and balk
+     * @return the Simulator with the given abandonment
+     */
+    public Simulator withAbandonment(Abandonment abandonment) {
+        return new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, this.policy,
+                this.monitor, this.queues, abandonment, this.compiled);
+    }
 
-        return customerList;
+    /**
+     * Returns a Simulator identical to this one that, where its shop
+     * has human servers only, arrivals in order and nothing observing
+     * its individual events, runs a {@link ShopEngine} compiled for
+     * its number of servers, qmax and rests by the
+     * {@link KernelCompiler}, rather than the generic event loop. The
+     * output is the same either way.
+     *
+     * @return the Simulator with a compiled engine
+     */
+    public Simulator withCompiledEngine() {
+        return new Simulator(this.numOfServers, this.selfChecks, this.qmax,
+                this.arrivalTimes, this.serviceTimes, this.restTimes, this.policy,
+                this.monitor, this.queues, this.abandonment, true);
     }
 
     /**
@@ -86,7 +232,7 @@ public class Simulator {
 
         ImList<Server> serverList = new ImList<Server>();
         for (int i = 1; i <= this.numOfServers; i++) {
-            serverList = serverList.add(new Server(i, this.qmax, this.restTimes));
+            serverList = serverList.add(new Server(i, this.qmax, this.restTimes.apply(i)));
         }
        
         /* Numbering of self-checkouts starts from k + 1 where k is
@@ -101,85 +247,271 @@ public class Simulator {
     }
 
     /**
-     * Returns an initial PQ with the arrival events of the customers
-     * created based on the list of customers.
-     * 
-     * @return the PQ with ArriveEvents
+     * Returns a fresh, lazy pass through the simulation as an
+     * Iterator over the Events it polls, in the order they are
+     * polled. No event is processed until it is asked for, so a
+     * caller may stop consuming at any point, for instance at a
+     * simulated-time horizon.
+     *
+     * @return an Iterator over the polled Events
+     */
+    @Override
+    public Iterator<Event> iterator() {
+        return this.run();
+    }
+
+    /**
+     * Returns a fresh, lazy pass through the simulation as a
+     * sequential, ordered Stream of the Events it polls. Non-first
+     * WaitEvents are included. For example, the Events up to time
+     * 100 are {@code events().takeWhile(e -> e.getTimeStamp() <= 100)}.
+     *
+     * @return a Stream of the polled Events
+     */
+    public Stream<Event> events() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                    this.iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Returns a new SimulationRun over the customers and servers
+     * of this Simulator.
+     *
+     * @return the SimulationRun
      */
-    private PQ<Event> makePQ() {
+    private SimulationRun run() {
+        return this.run(RunOptions.none());
+    }
 
-        ImList<Customer> tempCustomerList = this.makeCustomerList();
-        PQ<Event> pq = new PQ<Event>(new EventComp());
+    /**
+     * Returns a new SimulationRun over the customers and servers
+     * of this Simulator that also keeps the time-weighted
+     * statistics, feeds the PerturbationAnalysis and times the
+     * EventLoopProfile the given options ask for.
+     *
+     * @param options what the run produces besides its statistics
+     * @return the SimulationRun
+     */
+    private SimulationRun run(RunOptions options) {
+        ImList<Server> serverList = this.makeServerList();
+        EventQueue pq = this.abandonment.isEnabled() ? new IndexedEventQueue()
+            : this.queues.apply(new EventCodec(this.arrivalTimes, this.serviceTimes,
+                        serverList));
+        return new SimulationRun(this.arrivalTimes, this.serviceTimes,
+                serverList, this.policy, this.monitor, pq,
+                options.isTimeWeighted() ? new TimeWeightedStats(serverList) : null,
+                options.isPerturbed() ? new PerturbationAnalysis(serverList.size(),
+                    options.meanService(), options.meanRest()) : null,
+                options.isProfiled() ? new EventLoopProfile() : null,
+                this.abandonment);
+    }
 
-        for (int i = 0; i < tempCustomerList.size(); i++) {
-            Customer tempCustomer = tempCustomerList.get(i);
-            double tempArrival = tempCustomer.getArrivalTime();
+    /**
+     * Returns a LindleyEngine for this Simulator if it reduces to a
+     * plain FCFS queue and nothing needs to observe its individual
+     * events, or null otherwise: only with the default dispatch
+     * policy, no monitor, no customers who renege or balk, and no
+     * Flight Recorder recording of the run.
+     *
+     * @return the LindleyEngine, or null if it does not apply
+     */
+    private LindleyEngine fastPath() {
+        if (!this.isUnobserved()) {
+            return null;
+        }
+        ImList<Server> serverList = this.makeServerList();
+        if (!LindleyEngine.applies(serverList, this.qmax, this.arrivalTimes)) {
+            return null;
+        }
+        return new LindleyEngine(this.arrivalTimes, this.serviceTimes, serverList);
+    }
 
-            ArriveEvent tempArrivalEvent = new 
-                ArriveEvent(tempArrival, tempCustomer);
+    /**
+     * Checks if the run can skip the generic event loop: only with the
+     * default dispatch policy, no monitor, no customers who renege or
+     * balk, and no Flight Recorder recording of the run.
+     */
+    private boolean isUnobserved() {
+        return this.policy == DispatchPolicy.firstAvailable() && this.monitor == null
+            && !this.abandonment.isEnabled() && !new SimulationRunRecord().isEnabled();
+    }
 
-            pq = pq.add(tempArrivalEvent);
+    /**
+     * Runs the ShopEngine compiled for the shape of this shop, if one
+     * applies, appending its output to the given TraceWriter, if any:
+     * only where {@code isUnobserved} holds, with between 1 and
+     * {@code KernelCompiler.MAX_ENGINE_SERVERS} human servers and no
+     * self-checkouts, arrival times in order and an engine compiled.
+     *
+     * @param output the TraceWriter to append to, or null for none
+     * @return the {@code SimulationStats} of the run, or null if no
+     *     compiled engine applies
+     */
+    private SimulationStats runCompiled(TraceWriter output) {
+        if (!this.isUnobserved() || this.selfChecks != 0 || !this.arrivalTimes.isSorted()) {
+            return null;
         }
-        return pq;
+        ImList<Server> serverList = this.makeServerList();
+        boolean resting = false;
+        for (Server server : serverList) {
+            resting = resting || !server.isRestless();
+        }
+        ShopEngine engine = KernelCompiler.engine(this.numOfServers, this.qmax, resting);
+        if (engine == null) {
+            return null;
+        }
+        return engine.run(this.arrivalTimes, this.serviceTimes, serverList, output);
     }
 
     /**
-     * Main simulate method. While the PQ is not empty, events are
+     * Simulates with the ShopEngine compiled for the shape of this
+     * shop, whether or not {@code withCompiledEngine} was asked for,
+     * and returns its output, or null if no compiled engine applies.
+     *
+     * @return the String representation of the entire Simulation, or null
+     */
+    String simulateCompiled() {
+        TraceWriter finalOutput = new TraceWriter();
+        SimulationStats stats = this.runCompiled(finalOutput);
+        return stats == null ? null : finalOutput.statistics(stats).toString();
+    }
+
+    /**
+     * Main simulate method. While there are events left, events are
      * polled and the next event generated is added back into the
      * PQ, unless the event returns itself, in which case the
      * event is not added back. The String representation of the
      * event is added to {@code finalOutput}. The list of servers
      * returned overwrites the existing list of servers and thereby
-     * updating the state of the Servers with each event.
+     * updating the state of the Servers with each event. The
+     * polling itself is done by a {@link SimulationRun}.
      *
      * <p>All events have standardized statistics reporting. Each event is
      * queried for the number of customers served, left, and waiting time.
      * Only the relevant events will output a non-zero value. 
      *
+     * <p>Every call to {@code nextEvent} is timed by an
+     * {@code EventProcessedRecord} and the run as a whole is
+     * summarised by a {@code SimulationRunRecord}, both of which
+     * only cost anything while a JDK Flight Recorder recording is
+     * running. If a monitor is attached, the state of the run is
+     * published to it at regular intervals.
+     *
+     * <p>Shops without self-checkouts, rests or leaving customers are
+     * instead simulated by a {@link LindleyEngine}, which gives the
+     * same output without any events. Other shops of human servers
+     * only are simulated by a compiled {@link ShopEngine} if
+     * {@code withCompiledEngine} was asked for.
+     *
      * @return the String representation of the entire Simulation
      */
-
     public String simulate() { 
-        String finalOutput = "";        // final output to be printed
-        int servedNumber = 0;           // number of customers served
-        int leftNumber = 0;             // number of customers left
-        double totalWaitingTime = 0.0;  // total waiting time
-        double averageTime = 0.0;       // average waiting time
-
-        PQ<Event> pq = this.makePQ();
-        ImList<Server> serverList = this.makeServerList(); // Initialize serverList
-
-        while (!pq.isEmpty()) {
-            Event currentEvent = pq.poll().first(); // Event retrived from polled pair
-            pq = pq.poll().second();                // Subsequent PQ retrived from polled pair
-            
-            Pair<Event, ImList<Server>> eventServerPair = // Generate nextEvent
-                currentEvent.nextEvent(serverList); 
-            
-            Event nextEvent = eventServerPair.first();    // Next event retrieved from pair
-            ImList<Server> nextServers = eventServerPair.second(); // Server list retrieved
-
-            
-            if (!currentEvent.equals(nextEvent)) {
-                pq = pq.add(nextEvent); // Add next event back to PQ if not the same event 
+        LindleyEngine engine = this.fastPath();
+        if (engine != null) {
+            return engine.trace();
+        }
+        String output = this.compiled ? this.simulateCompiled() : null;
+        if (output != null) {
+            return output;
+        }
+
+        return this.trace(this.run());
+    }
+
+    /**
+     * Runs a SimulationRun to the end and returns the String
+     * representation of its events followed by its statistics.
+     *
+     * @param run the SimulationRun
+     * @return the String representation of the entire Simulation
+     */
+    private String trace(SimulationRun run) {
+        return this.trace(run, RunOptions.none());
+    }
+
+    /**
+     * Runs a SimulationRun to the end and returns the output the
+     * given options ask for: the String representation of all its
+     * events, or of the last of them, followed by its statistics, or
+     * null for none. The time taken to format sampled events is
+     * added to the profile of the run, if any.
+     *
+     * @param run the SimulationRun
+     * @param options the options the run was made with
+     * @return the output of the Simulation, or null
+     */
+    private String trace(SimulationRun run, RunOptions options) {
+        TraceWriter finalOutput = new TraceWriter(); // final output to be printed
+        TraceTail tail = options.tail();
+        EventLoopProfile profile = run.profile();
+
+        while (run.hasNext()) {
+            Event event = run.next();
+            if (!options.hasOutput()) {
+                continue;
+            }
+            boolean timing = profile != null && profile.isTiming();
+            long start = timing ? System.nanoTime() : 0L;
+            if (tail != null) {
+                tail.add(event);
+            } else {
+                finalOutput.event(event);
             }
+            if (timing) {
+                profile.formatted(System.nanoTime() - start);
+            }
+        }
+
+        if (!options.hasOutput()) {
+            return null;
+        } else if (tail != null) {
+            return tail.dump() + finalOutput.statistics(run.statistics());
+        }
+        return finalOutput.statistics(run.statistics()).toString();
+    }
 
-            totalWaitingTime += currentEvent.waitAdd(); // All statistics updated
-            servedNumber += currentEvent.add();
-            leftNumber += currentEvent.left();
-            finalOutput += currentEvent.toString();
-            serverList = nextServers;  // list of servers is updated 
+    /**
+     * Simulates event by event, as {@code simulate} does without its
+     * fast path, producing what the given options ask for besides
+     * the statistics, and returns the output of the Simulation
+     * together with the finished run. Its time-weighted statistics,
+     * PerturbationAnalysis and EventLoopProfile, where asked for, can
+     * then be read off the run, all from the same pass. For example,
+     * the last 10 lines of the output and the derivatives of the
+     * average wait are given by
+     * {@code simulateRun(RunOptions.none().withTail(new TraceTail(10))
+     * .withPerturbation(meanService, meanRest))}.
+     *
+     * @param options what the run produces besides its statistics
+     * @return the output, or null if none was asked for, and the SimulationRun
+     */
+    Pair<String, SimulationRun> simulateRun(RunOptions options) {
+        SimulationRun run = this.run(options);
+        String output = this.trace(run, options);
+        return new Pair<String, SimulationRun>(output, run);
+    }
+
+    /**
+     * Runs the whole simulation without building its String
+     * representation, and returns only its statistics.
+     *
+     * @return the {@code SimulationStats} of the entire Simulation
+     */
+    public SimulationStats statistics() {
+        LindleyEngine engine = this.fastPath();
+        if (engine != null) {
+            return engine.statistics();
+        }
+        SimulationStats stats = this.compiled ? this.runCompiled(null) : null;
+        if (stats != null) {
+            return stats;
+        }
 
+        SimulationRun run = this.run();
+        while (run.hasNext()) {
+            run.next();
         }
-        
-        if (totalWaitingTime > 0) {    // to prevent zero division error
-            averageTime = totalWaitingTime / servedNumber;
-        } 
-
-        String stats = String.format("[%.3f %d %d]", averageTime,
-                servedNumber, leftNumber); // Statistics formatting
-        return finalOutput + stats;
-        
+        return run.statistics();
     }
 
 }
@@ -0,0 +1,219 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A SobolSequence is the low-discrepancy Sobol sequence of points in
+ * the unit cube of a given number of dimensions, optionally
+ * scrambled. Its first 2^m points fill the cube far more evenly
+ * than 2^m random points, so averages over them converge faster than
+ * the 1/sqrt(n) of Monte Carlo for smooth enough integrands.
+ *
+ * <p>Coordinate d of point i is the XOR of the direction numbers of
+ * dimension d selected by the bits of i, each a 53-bit binary
+ * fraction. Dimension 0 is the van der Corput sequence; dimension d
+ * of the others follows the recurrence of the d-th primitive
+ * polynomial over GF(2), found by testing polynomials of increasing
+ * degree, from initial direction numbers drawn once from a fixed
+ * seed, as published tables of them only reach so many dimensions.
+ *
+ * <p>A scrambled sequence multiplies the direction numbers of each
+ * dimension by a random lower-triangular binary matrix and XORs a
+ * random digital shift into every coordinate (Matousek's linear
+ * scrambling). Every point of a scrambled sequence is then uniform
+ * in the cube, so an average over its points is unbiased, while
+ * the points keep their even spread; independent scramblings give
+ * independent averages, and so a confidence interval.
+ */
+public class SobolSequence {
+
+    private static final int BITS = 53;
+    private static final double SCALE = 0x1p-53;
+    private static final long INITIAL_SEED = 0x50B0L;
+    private static final List<Integer> POLYNOMIALS = new ArrayList<Integer>();
+    private static int searchedDegree = 0;    // of the POLYNOMIALS found so far
+
+    private final int dimensions;
+    private final long[] directions;   // BITS per dimension, by dimension
+    private final long[] shifts;       // by dimension
+
+    /**
+     * Constructs the unscrambled SobolSequence of the given number of
+     * dimensions.
+     *
+     * @param dimensions the number of dimensions
+     * @throws IllegalArgumentException if dimensions is not positive.
+     */
+    public SobolSequence(int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("Sobol sequence of " + dimensions
+                    + " dimensions");
+        }
+        this.dimensions = dimensions;
+        this.directions = new long[dimensions * BITS];
+        this.shifts = new long[dimensions];
+
+        SplittableRandom rng = new SplittableRandom(INITIAL_SEED);
+        for (int k = 1; k <= BITS; k++) {      // van der Corput
+            this.directions[k - 1] = 1L << (BITS - k);
+        }
+        for (int d = 1; d < dimensions; d++) {
+            int polynomial = SobolSequence.polynomial(d - 1);
+            int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+            long[] m = new long[BITS + 1];
+            for (int k = 1; k <= BITS; k++) {
+                if (k <= degree) {                 // odd and below 2^k
+                    m[k] = (rng.nextLong(1L << (k - 1)) << 1) | 1L;
+                } else {
+                    m[k] = m[k - degree] ^ (m[k - degree] << degree);
+                    for (int i = 1; i < degree; i++) {
+                        if ((polynomial >>> (degree - i) & 1) != 0) {
+                            m[k] ^= m[k - i] << i;
+                        }
+                    }
+                }
+                this.directions[d * BITS + k - 1] = m[k] << (BITS - k);
+            }
+        }
+    }
+
+    /**
+     * Constructs a SobolSequence with all parameters specified.
+     */
+    private SobolSequence(int dimensions, long[] directions, long[] shifts) {
+        this.dimensions = dimensions;
+        this.directions = directions;
+        this.shifts = shifts;
+    }
+
+    /**
+     * Returns a randomly scrambled copy of this SobolSequence.
+     *
+     * @param stream the stream the scrambling is drawn from
+     * @return the scrambled {@code SobolSequence}.
+     */
+    public SobolSequence scramble(RandomStream stream) {
+        long[] directions = new long[this.directions.length];
+        long[] shifts = new long[this.dimensions];
+        long[] rows = new long[BITS];
+        for (int d = 0; d < this.dimensions; d++) {
+            for (int i = 0; i < BITS; i++) {   // row i: unit diagonal, random to its left
+                long left = (long) (stream.next() * (1L << BITS)) >>> (BITS - i);
+                rows[i] = (left << (BITS - i)) | (1L << (BITS - 1 - i));
+            }
+            for (int k = 0; k < BITS; k++) {
+                long v = this.directions[d * BITS + k];
+                long scrambled = 0L;
+                for (int i = 0; i < BITS; i++) {
+                    scrambled |= (long) (Long.bitCount(rows[i] & v) & 1) << (BITS - 1 - i);
+                }
+                directions[d * BITS + k] = scrambled;
+            }
+            shifts[d] = (long) (stream.next() * (1L << BITS));
+        }
+        return new SobolSequence(this.dimensions, directions, shifts);
+    }
+
+    /**
+     * Returns the number of dimensions.
+     *
+     * @return {@code int} value of the number of dimensions.
+     */
+    public int dimensions() {
+        return this.dimensions;
+    }
+
+    /**
+     * Returns a coordinate of a point of the sequence.
+     *
+     * @param index the index of the point, from 0
+     * @param dimension the dimension, from 0
+     * @return {@code double} value of the coordinate, in [0, 1).
+     */
+    public double coordinate(long index, int dimension) {
+        long x = this.shifts[dimension];
+        int base = dimension * BITS;
+        for (int k = 0; index != 0; k++, index >>>= 1) {
+            if ((index & 1) != 0) {
+                x ^= this.directions[base + k];
+            }
+        }
+        return x * SCALE;
+    }
+
+    /**
+     * Returns the i-th primitive polynomial over GF(2) of degree at
+     * least 1, in order of degree and then of value, as the bits of
+     * an int. They are found as needed and kept for every sequence.
+     */
+    private static int polynomial(int i) {
+        synchronized (POLYNOMIALS) {
+            while (POLYNOMIALS.size() <= i) {
+                int degree = ++searchedDegree;
+                for (int p = (1 << degree) | 1; p < 1 << (degree + 1); p += 2) {
+                    if (SobolSequence.isPrimitive(p, degree)) {
+                        POLYNOMIALS.add(p);
+                    }
+                }
+            }
+            return POLYNOMIALS.get(i);
+        }
+    }
+
+    /**
+     * Checks if a polynomial of the given degree is primitive: if x
+     * has order exactly 2^degree - 1 modulo it, which is so if
+     * x^(2^degree - 1) is 1 but no x^((2^degree - 1) / q) is, for a
+     * prime factor q of 2^degree - 1.
+     */
+    private static boolean isPrimitive(int p, int degree) {
+        long order = (1L << degree) - 1;
+        if (SobolSequence.power(order, p, degree) != 1) {
+            return false;
+        }
+        long rest = order;
+        for (long q = 2; q * q <= rest; q++) {
+            if (rest % q == 0) {
+                if (SobolSequence.power(order / q, p, degree) == 1) {
+                    return false;
+                }
+                while (rest % q == 0) {
+                    rest /= q;
+                }
+            }
+        }
+        return rest == 1 || SobolSequence.power(order / rest, p, degree) != 1;
+    }
+
+    /**
+     * Returns x^e modulo the polynomial p of the given degree.
+     */
+    private static long power(long e, int p, int degree) {
+        long result = 1L;
+        long base = degree == 1 ? 2L ^ p : 2L;    // x, reduced
+        for (; e != 0; e >>>= 1) {
+            if ((e & 1) != 0) {
+                result = SobolSequence.multiply(result, base, p, degree);
+            }
+            base = SobolSequence.multiply(base, base, p, degree);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a * b modulo the polynomial p of the given degree.
+     */
+    private static long multiply(long a, long b, int p, int degree) {
+        long product = 0L;
+        for (; b != 0; b >>>= 1) {
+            if ((b & 1) != 0) {
+                product ^= a;
+            }
+            a <<= 1;
+            if ((a >>> degree & 1) != 0) {
+                a ^= p;
+            }
+        }
+        return product;
+    }
+}
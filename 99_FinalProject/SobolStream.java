@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+/**
+ * A SobolStream is a UniformStream of randomised quasi-Monte Carlo
+ * numbers: replication r, its substream r, draws its inputs from the
+ * coordinates of point r of a scrambled {@link SobolSequence}, so
+ * that the replications of a campaign together cover the space of
+ * inputs evenly, where independent replications would leave clumps
+ * and gaps.
+ *
+ * <p>The inputs are laid over the dimensions of a point by lanes.
+ * A lane of the given key, members and depth stands for the
+ * substreams {@code substream(key).substream(m)} of a replication,
+ * for members m from 1, and gives the k-th draw of member m, for k
+ * below the depth, from dimension {@code base + k * members + m - 1},
+ * its lanes taking up the dimensions one after another. Every other
+ * draw, and every draw beyond the dimensions of the sequence, comes
+ * from the same substream of a {@link RandomStream}, so a campaign
+ * with more inputs than dimensions still works, only with less
+ * benefit.
+ */
+class SobolStream implements UniformStream {
+
+    private static final int NONE = -1;
+
+    private final SobolSequence points;
+    private final RandomStream padding;  // of the same keys as this stream
+    private final long[] keys;           // by lane
+    private final int[] members;
+    private final int[] depths;
+    private final int[] bases;
+    private final long index;            // of the point, or NONE above replications
+    private final int lane;              // or NONE above lanes
+    private final int member;            // or NONE above members
+    private int draws = 0;
+
+    /**
+     * Constructs a SobolStream without lanes, whose substream r
+     * draws everything from substream r of the padding.
+     *
+     * @param points the scrambled sequence of points
+     * @param padding the stream of draws not laid over a point
+     */
+    SobolStream(SobolSequence points, RandomStream padding) {
+        this(points, padding, new long[0], new int[0], new int[0], new int[0], NONE, NONE,
+                NONE);
+    }
+
+    /**
+     * Constructs a SobolStream with all parameters specified.
+     */
+    private SobolStream(SobolSequence points, RandomStream padding, long[] keys,
+            int[] members, int[] depths, int[] bases, long index, int lane, int member) {
+        this.points = points;
+        this.padding = padding;
+        this.keys = keys;
+        this.members = members;
+        this.depths = depths;
+        this.bases = bases;
+        this.index = index;
+        this.lane = lane;
+        this.member = member;
+    }
+
+    /**
+     * Returns a SobolStream identical to this one but with one more
+     * lane, taking up the next members * depth dimensions.
+     *
+     * @param key the key of the lane's substream of a replication
+     * @param members the number of members of the lane
+     * @param depth the number of draws of each member laid over a point
+     * @return the {@code SobolStream} with the lane.
+     */
+    SobolStream withLane(long key, int members, int depth) {
+        int n = this.keys.length;
+        int[] bases = Arrays.copyOf(this.bases, n + 1);
+        bases[n] = n == 0 ? 0 : this.bases[n - 1] + this.members[n - 1] * this.depths[n - 1];
+        long[] keys = Arrays.copyOf(this.keys, n + 1);
+        keys[n] = key;
+        int[] memberCounts = Arrays.copyOf(this.members, n + 1);
+        memberCounts[n] = members;
+        int[] depths = Arrays.copyOf(this.depths, n + 1);
+        depths[n] = depth;
+        return new SobolStream(this.points, this.padding, keys, memberCounts, depths, bases,
+                this.index, this.lane, this.member);
+    }
+
+    /**
+     * Returns the next number: a coordinate of the point if this is
+     * a member of a lane with draws left within the dimensions, and
+     * a pseudorandom number otherwise.
+     *
+     * @return {@code double} value of the number, in [0, 1).
+     */
+    @Override
+    public double next() {
+        if (this.member != NONE && this.draws < this.depths[this.lane]) {
+            int dimension = this.bases[this.lane] + this.draws * this.members[this.lane]
+                + this.member - 1;
+            if (dimension < this.points.dimensions()) {
+                this.draws++;
+                return this.points.coordinate(this.index, dimension);
+            }
+        }
+        return this.padding.next();
+    }
+
+    /**
+     * Returns the substream of the given key: the replication of the
+     * point of that index, a lane of a replication, or a member of a
+     * lane, and otherwise the substream of the padding.
+     *
+     * @param key the key of the substream
+     * @return the substream.
+     */
+    @Override
+    public UniformStream substream(long key) {
+        RandomStream padding = this.padding.substream(key);
+        if (this.index == NONE) {
+            return new SobolStream(this.points, padding, this.keys, this.members,
+                    this.depths, this.bases, key, NONE, NONE);
+        }
+        if (this.lane == NONE) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i] == key) {
+                    return new SobolStream(this.points, padding, this.keys, this.members,
+                            this.depths, this.bases, this.index, i, NONE);
+                }
+            }
+            return padding;
+        }
+        if (this.member == NONE && key >= 1 && key <= this.members[this.lane]) {
+            return new SobolStream(this.points, padding, this.keys, this.members,
+                    this.depths, this.bases, this.index, this.lane, (int) key);
+        }
+        return padding;
+    }
+}
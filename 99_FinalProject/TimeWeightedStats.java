@@ -0,0 +1,242 @@
+/**
+ * A TimeWeightedStats integrates the state of the servers over
+ * simulated time: how long each server has been busy, how long it
+ * has been resting, and the area under the length of each queue.
+ * Divided by the time simulated, these give the utilisation and
+ * rest fraction of each server and its time-averaged queue length,
+ * which the average wait alone does not show.
+ *
+ * <p>The integrals are kept up to date by {@code update}, which a
+ * {@link SimulationRun} asked to keep them calls once per polled
+ * event with the event, the event it generated and the new list of
+ * servers. Each call touches only the server of the event, so it
+ * costs O(1):
+ *
+ * <ul>
+ * <li>a customer who arrives and waits joins the queue of its
+ * server, and leaves it when its WaitEvent turns into a ServeEvent
+ * or when it reneges;
+ * <li>a server is busy from a ServeEvent until its DoneEvent;
+ * <li>a human server rests from its DoneEvent until the next free
+ * time that {@code addRestTime} gave it.
+ * </ul>
+ *
+ * <p>The self-checkouts share one queue, which is counted once. A
+ * rest that outlasts the last event is cut off there.
+ *
+ * <p>Like a SimulationRun, a TimeWeightedStats is mutable, and is
+ * owned by the single run that updates it.
+ */
+public class TimeWeightedStats {
+
+    private final ImList<Server> servers;     // as labels
+    private final int selfCheckQueue;         // index of the shared queue, -1 if none
+    private final double[] busy;              // integrals, by server index
+    private final double[] resting;
+    private final double[] queueArea;         // by queue index
+    private final double[] busySince;
+    private final double[] restEnd;
+    private final int[] queueLength;
+    private final double[] queueSince;
+    private double now = 0.0;
+
+    /**
+     * Constructs a TimeWeightedStats with every integral at 0.
+     *
+     * @param servers the initial list of servers and self-checkouts
+     */
+    TimeWeightedStats(ImList<Server> servers) {
+        int n = servers.size();
+        this.servers = servers;
+        this.busy = new double[n];
+        this.resting = new double[n];
+        this.queueArea = new double[n];
+        this.busySince = new double[n];
+        this.restEnd = new double[n];
+        this.queueLength = new int[n];
+        this.queueSince = new double[n];
+
+        int shared = -1;
+        for (int i = n - 1; i >= 0; i--) {
+            if (servers.get(i).isSelf()) {
+                shared = i;
+            }
+        }
+        this.selfCheckQueue = shared;
+    }
+
+    /**
+     * Integrates the state changes made by one polled event.
+     *
+     * @param current the event polled
+     * @param next the event it generated
+     * @param after the list of servers after the event
+     */
+    void update(Event current, Event next, ImList<Server> after) {
+        double time = current.getTimeStamp();
+        this.now = time;
+
+        if (current instanceof ArriveEvent && next instanceof WaitEvent) {
+            this.changeQueue(this.queueOf(next.getServer()), time, 1);
+        } else if (current instanceof WaitEvent && next instanceof ServeEvent
+                || current instanceof RenegeEvent) {
+            this.changeQueue(this.queueOf(current.getServer()), time, -1);
+        }
+
+        if (current instanceof ServeEvent) {
+            this.busySince[current.getServer().getServerId() - 1] = time;
+        } else if (current instanceof DoneEvent) {
+            int i = current.getServer().getServerId() - 1;
+            this.busy[i] += time - this.busySince[i];
+            double nextFree = after.get(i).getNextFree();   // done plus the rest given
+            this.resting[i] += nextFree - time;
+            this.restEnd[i] = nextFree;
+        }
+    }
+
+    /**
+     * Returns the index of the queue a server's customers wait in.
+     */
+    private int queueOf(Server server) {
+        return server.isSelf() ? this.selfCheckQueue : server.getServerId() - 1;
+    }
+
+    /**
+     * Adds the area under a queue up to the given time, then
+     * changes its length.
+     */
+    private void changeQueue(int queue, double time, int change) {
+        this.queueArea[queue] += this.queueLength[queue] * (time - this.queueSince[queue]);
+        this.queueLength[queue] += change;
+        this.queueSince[queue] = time;
+    }
+
+    /**
+     * Returns the simulated time integrated over: the timestamp of
+     * the last event.
+     *
+     * @return {@code double} value of the time simulated.
+     */
+    public double horizon() {
+        return this.now;
+    }
+
+    /**
+     * Returns the fraction of the time simulated a server was busy.
+     *
+     * @param serverId the id of the server
+     * @return {@code double} value of the utilisation.
+     */
+    public double utilisation(int serverId) {
+        return this.average(this.busy[serverId - 1]);
+    }
+
+    /**
+     * Returns the fraction of the time simulated a server was
+     * resting.
+     *
+     * @param serverId the id of the server
+     * @return {@code double} value of the rest fraction.
+     */
+    public double restFraction(int serverId) {
+        return this.average(this.restTime(serverId - 1));
+    }
+
+    /**
+     * Returns the time-averaged length of the queue a server's
+     * customers wait in, which for a self-checkout is the queue all
+     * self-checkouts share.
+     *
+     * @param serverId the id of the server
+     * @return {@code double} value of the mean queue length.
+     */
+    public double meanQueueLength(int serverId) {
+        return this.average(this.area(this.queueOf(this.servers.get(serverId - 1))));
+    }
+
+    /**
+     * Returns the time-averaged number of busy servers in the shop.
+     *
+     * @return {@code double} value of the mean number busy.
+     */
+    public double meanBusy() {
+        double total = 0.0;
+        for (double b : this.busy) {
+            total += b;
+        }
+        return this.average(total);
+    }
+
+    /**
+     * Returns the time-averaged number of resting servers in the
+     * shop.
+     *
+     * @return {@code double} value of the mean number resting.
+     */
+    public double meanResting() {
+        double total = 0.0;
+        for (int i = 0; i < this.resting.length; i++) {
+            total += this.restTime(i);
+        }
+        return this.average(total);
+    }
+
+    /**
+     * Returns the time-averaged number of customers waiting in the
+     * shop, over all queues.
+     *
+     * @return {@code double} value of the mean number waiting.
+     */
+    public double meanWaiting() {
+        double total = 0.0;
+        for (int q = 0; q < this.queueArea.length; q++) {
+            total += this.area(q);
+        }
+        return this.average(total);
+    }
+
+    /**
+     * Returns the rest time of a server, without the part of its
+     * last rest after the last event.
+     */
+    private double restTime(int i) {
+        return this.resting[i] - Math.max(0.0, this.restEnd[i] - this.now);
+    }
+
+    /**
+     * Returns the area under a queue up to the last event.
+     */
+    private double area(int queue) {
+        return this.queueArea[queue]
+            + this.queueLength[queue] * (this.now - this.queueSince[queue]);
+    }
+
+    /**
+     * Divides an integral by the time simulated, or returns 0 if no
+     * time has passed.
+     */
+    private double average(double integral) {
+        return this.now > 0 ? integral / this.now : 0.0;
+    }
+
+    /**
+     * Returns one line per server, giving the fractions of time it
+     * was busy and resting and the mean length of its queue, and a
+     * last line for the whole shop, giving the mean numbers of
+     * servers busy and resting and of customers waiting.
+     *
+     * @return the String representation of the time-weighted statistics.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Server server : this.servers) {
+            int id = server.getServerId();
+            report.append(String.format("%s: busy %.3f resting %.3f queue %.3f\n", server,
+                        this.utilisation(id), this.restFraction(id), this.meanQueueLength(id)));
+        }
+        return report.append(String.format("shop: busy %.3f resting %.3f waiting %.3f over %.3f",
+                    this.meanBusy(), this.meanResting(), this.meanWaiting(), this.now))
+            .toString();
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Converts an input file of the Main class, such as the
+ * {@code test*.in} files, to a {@link TraceFile}:
+ *
+ * <pre>
+ * java TraceConverter [--delta] [input.in] output.trace
+ * </pre>
+ *
+ * <p>The input is read from standard input if no input file is
+ * given. With {@code --delta} the arrival times are delta-encoded,
+ * unless that would change any of them, in which case they are
+ * written as they are.
+ */
+class TraceConverter {
+
+    private TraceConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean delta = Arrays.asList(args).contains("--delta");
+        String[] paths = Arrays.stream(args)
+            .filter(arg -> !arg.startsWith("--"))
+            .toArray(String[]::new);
+        if (paths.length < 1 || paths.length > 2) {
+            System.err.println("usage: java TraceConverter [--delta] [input.in] output.trace");
+            System.exit(2);
+        }
+
+        Reader in = paths.length == 2
+            ? Files.newBufferedReader(Paths.get(paths[0]))
+            : new InputStreamReader(System.in);
+        Path out = Paths.get(paths[paths.length - 1]);
+
+        try (BufferedReader reader = new BufferedReader(in)) {
+            TraceConverter.convert(reader, out, delta);
+        }
+    }
+
+    /**
+     * Reads an input of the Main class and writes it as a
+     * TraceFile. The arrival times are parsed one by one into a
+     * growing array, so the input is never held as text.
+     *
+     * @param reader the input
+     * @param out the path of the TraceFile
+     * @param delta whether to delta-encode the arrival times
+     * @throws IOException if the input cannot be read or the
+     *     TraceFile cannot be written
+     */
+    static void convert(BufferedReader reader, Path out, boolean delta) throws IOException {
+        double[] header = new double[4];       // servers, self-checks, qmax, probRest
+        double[] arrivals = new double[1024];
+        int tokens = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            for (String token : line.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                double value = Double.parseDouble(token);
+                if (tokens < header.length) {
+                    header[tokens] = value;
+                } else {
+                    int i = tokens - header.length;
+                    if (i == arrivals.length) {
+                        arrivals = Arrays.copyOf(arrivals, 2 * arrivals.length);
+                    }
+                    arrivals[i] = value;
+                }
+                tokens++;
+            }
+        }
+        if (tokens < header.length) {
+            throw new IOException("missing header");
+        }
+
+        int count = tokens - header.length;
+        if (delta && !TraceFile.isDeltaExact(arrivals, count)) {
+            System.err.println("delta encoding would be lossy; writing absolute times");
+            delta = false;
+        }
+        TraceFile.write(out, (int) header[0], (int) header[1], (int) header[2],
+                header[3], arrivals, count, delta);
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A TraceFile is an arrival trace in a compact binary format: the
+ * input of the Main class, with the arrival times as raw doubles
+ * rather than text. All values are little-endian. The file starts
+ * with a header of {@code HEADER_BYTES} bytes:
+ *
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, the bytes "DEST"
+ *      4     2  version, 1
+ *      6     2  flags, bit 0 set if the times are delta-encoded
+ *      8     4  number of servers
+ *     12     4  number of self-checkouts
+ *     16     4  qmax
+ *     20     4  reserved, 0
+ *     24     8  probRest
+ *     32     8  number of arrival times
+ * </pre>
+ *
+ * <p>followed by the arrival times. If delta-encoded, the first is
+ * the first arrival time and every other one is the difference from
+ * the one before, which only stores the same values if adding up
+ * the differences gives the arrival times back exactly.
+ *
+ * <p>A TraceFile is read through {@code FileChannel.map}. Absolute
+ * arrival times are then read in place, straight from the page
+ * cache, so a trace of tens of millions of arrivals costs no heap
+ * at all; delta-encoded times are added up into one array.
+ */
+public class TraceFile {
+
+    static final int MAGIC = 0x54534544;     // "DEST" in little-endian order
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 40;
+    private static final short DELTA = 1;
+    private static final int CHUNK = 8192;   // doubles written at a time
+
+    private final int numOfServers;
+    private final int selfChecks;
+    private final int qmax;
+    private final double probRest;
+    private final boolean delta;
+    private final ArrivalTimes arrivalTimes;
+
+    private TraceFile(int servers, int selfChecks, int qmax, double probRest,
+            boolean delta, ArrivalTimes arrivalTimes) {
+        this.numOfServers = servers;
+        this.selfChecks = selfChecks;
+        this.qmax = qmax;
+        this.probRest = probRest;
+        this.delta = delta;
+        this.arrivalTimes = arrivalTimes;
+    }
+
+    /**
+     * Returns a TraceFile held in memory rather than read from a
+     * file, such as the text input of the Main class.
+     *
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length
+     * @param probRest the probability of a server resting
+     * @param arrivalTimes the arrival times
+     * @return the {@code TraceFile}.
+     */
+    static TraceFile of(int servers, int selfChecks, int qmax, double probRest,
+            ArrivalTimes arrivalTimes) {
+        return new TraceFile(servers, selfChecks, qmax, probRest, false, arrivalTimes);
+    }
+
+    /**
+     * Maps a TraceFile.
+     *
+     * @param path the path of the file
+     * @return the {@code TraceFile}.
+     * @throws IOException if the file cannot be read or is not a
+     *     valid trace
+     */
+    public static TraceFile read(Path path) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(path + ": not a trace file");
+            } else if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": too large to map");
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size) // stays mapped
+                .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (bytes.getInt(0) != MAGIC) {
+            throw new IOException(path + ": not a trace file");
+        } else if (bytes.getShort(4) != VERSION) {
+            throw new IOException(path + ": unsupported version " + bytes.getShort(4));
+        }
+        boolean delta = (bytes.getShort(6) & DELTA) != 0;
+        long count = bytes.getLong(32);
+        if (count < 0 || count > (bytes.capacity() - HEADER_BYTES) / Double.BYTES) {
+            throw new IOException(path + ": truncated");
+        }
+
+        DoubleBuffer times = bytes.position(HEADER_BYTES).slice()
+            .order(ByteOrder.LITTLE_ENDIAN) // slice() resets the order
+            .asDoubleBuffer()
+            .limit((int) count);
+
+        return new TraceFile(bytes.getInt(8), bytes.getInt(12), bytes.getInt(16),
+                bytes.getDouble(24), delta,
+                delta ? ArrivalTimes.of(TraceFile.undelta(times)) : ArrivalTimes.of(times));
+    }
+
+    /**
+     * Adds up delta-encoded arrival times.
+     */
+    private static double[] undelta(DoubleBuffer deltas) {
+        double[] times = new double[deltas.limit()];
+        double time = 0.0;
+        for (int i = 0; i < times.length; i++) {
+            time = i == 0 ? deltas.get(0) : time + deltas.get(i);
+            times[i] = time;
+        }
+        return times;
+    }
+
+    /**
+     * Checks if delta-encoding the first count arrival times would
+     * store them exactly.
+     *
+     * @param arrivalTimes the arrival times
+     * @param count the number of arrival times
+     * @return {@code true} if delta encoding is lossless.
+     */
+    public static boolean isDeltaExact(double[] arrivalTimes, int count) {
+        double time = 0.0;
+        for (int i = 0; i < count; i++) {
+            time = i == 0 ? arrivalTimes[0] : time + (arrivalTimes[i] - arrivalTimes[i - 1]);
+            if (Double.compare(time, arrivalTimes[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a TraceFile.
+     *
+     * @param path the path of the file
+     * @param servers number of servers in the shop
+     * @param selfChecks number of self-checkout counters
+     * @param qmax the maximum queue length
+     * @param probRest the probability of a server resting
+     * @param arrivalTimes the arrival times
+     * @param count the number of arrival times
+     * @param delta whether to delta-encode the arrival times
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if delta encoding is lossy
+     */
+    public static void write(Path path, int servers, int selfChecks, int qmax,
+            double probRest, double[] arrivalTimes, int count, boolean delta)
+            throws IOException {
+        if (delta && !TraceFile.isDeltaExact(arrivalTimes, count)) {
+            throw new IllegalArgumentException("delta encoding would be lossy");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK * Double.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC)
+            .putShort(VERSION)
+            .putShort(delta ? DELTA : 0)
+            .putInt(servers)
+            .putInt(selfChecks)
+            .putInt(qmax)
+            .putInt(0)
+            .putDouble(probRest)
+            .putLong(count);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < count; i++) {
+                if (!buffer.hasRemaining()) {
+                    TraceFile.drain(channel, buffer);
+                }
+                buffer.putDouble(delta && i > 0
+                        ? arrivalTimes[i] - arrivalTimes[i - 1] : arrivalTimes[i]);
+            }
+            TraceFile.drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes out and clears a buffer.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the number of human servers.
+     *
+     * @return {@code int} value of the number of servers.
+     */
+    public int getServers() {
+        return this.numOfServers;
+    }
+
+    /**
+     * Returns the number of self-checkout counters.
+     *
+     * @return {@code int} value of the number of self-checkouts.
+     */
+    public int getSelfChecks() {
+        return this.selfChecks;
+    }
+
+    /**
+     * Returns the maximum queue length.
+     *
+     * @return {@code int} value of qmax.
+     */
+    public int getQmax() {
+        return this.qmax;
+    }
+
+    /**
+     * Returns the probability of a server resting.
+     *
+     * @return {@code double} value of probRest.
+     */
+    public double getProbRest() {
+        return this.probRest;
+    }
+
+    /**
+     * Returns whether the arrival times are delta-encoded.
+     *
+     * @return {@code true} if delta-encoded.
+     */
+    public boolean isDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Returns the arrival times.
+     *
+     * @return the {@code ArrivalTimes} of the trace.
+     */
+    ArrivalTimes getArrivalTimes() {
+        return this.arrivalTimes;
+    }
+}
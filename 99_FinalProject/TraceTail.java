@@ -0,0 +1,107 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A TraceTail keeps only the last lines of the output of a
+ * simulation, for runs too long to keep all of it. The lines are
+ * formatted by a {@link TraceWriter} and copied into a ring of byte
+ * arrays allocated up front, each overwritten in turn once the ring
+ * is full, so the memory held stays the same however long the run.
+ * A slot grows only for a line longer than any it held before.
+ *
+ * <p>A TraceTail may be dumped by another thread while the run is
+ * adding to it, for example through the {@link SimulationMonitor} it
+ * is attached to, so adding and dumping are synchronized. The lock
+ * is only ever contended during a dump.
+ */
+public class TraceTail {
+
+    private static final int LINE_CAPACITY = 48;   // enough for most lines
+
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final TraceWriter writer = new TraceWriter();  // scratch for one line
+    private int next = 0;          // slot the next line goes into
+    private long lines = 0;        // number of lines added
+
+    /**
+     * Constructs an empty TraceTail of the given number of lines.
+     *
+     * @param capacity the number of lines kept, at least 1
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public TraceTail(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A tail needs at least one line: " + capacity);
+        }
+        this.slots = new byte[capacity][LINE_CAPACITY];
+        this.lengths = new int[capacity];
+    }
+
+    /**
+     * Adds the line of an Event, if it has one, overwriting the
+     * oldest line once the tail is full. Non-first WaitEvents have
+     * no line and are skipped.
+     *
+     * @param event the Event polled
+     */
+    synchronized void add(Event event) {
+        this.writer.reset();
+        this.writer.event(event);
+        int size = this.writer.size();
+        if (size == 0) {
+            return;
+        }
+
+        if (size > this.slots[this.next].length) {
+            this.slots[this.next] = new byte[size];
+        }
+        this.writer.copyTo(this.slots[this.next]);
+        this.lengths[this.next] = size;
+        this.next = (this.next + 1) % this.slots.length;
+        this.lines++;
+    }
+
+    /**
+     * Returns the number of lines added, including those no longer
+     * kept.
+     *
+     * @return {@code long} value of the number of lines added.
+     */
+    public synchronized long lines() {
+        return this.lines;
+    }
+
+    /**
+     * Returns the lines kept, oldest first, each ending in a newline.
+     *
+     * @return the String of the last lines.
+     */
+    public synchronized String dump() {
+        int capacity = this.slots.length;
+        int kept = (int) Math.min(this.lines, capacity);
+        int first = (this.next - kept + capacity) % capacity;
+
+        int total = 0;
+        for (int i = 0; i < kept; i++) {
+            total += this.lengths[(first + i) % capacity];
+        }
+        byte[] bytes = new byte[total];
+        int offset = 0;
+        for (int i = 0; i < kept; i++) {
+            int slot = (first + i) % capacity;
+            System.arraycopy(this.slots[slot], 0, bytes, offset, this.lengths[slot]);
+            offset += this.lengths[slot];
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the lines kept, as {@code dump} does.
+     *
+     * @return the String representation of the tail.
+     */
+    @Override
+    public String toString() {
+        return this.dump();
+    }
+}
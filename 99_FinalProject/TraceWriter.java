@@ -0,0 +1,338 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A TraceWriter builds the output of a simulation, one line at a
+ * time, into a byte buffer that grows as needed and can be reused.
+ * Its output is byte for byte that of the toString methods of the
+ * Events and of {@link SimulationStats}, but timestamps are written
+ * with 3 decimal places by a few integer operations instead of a
+ * {@code Formatter}, and no String is created for any line.
+ *
+ * <p>A {@code %.3f} conversion rounds the shortest decimal form of
+ * a double half up. Away from a tie this is the same as rounding
+ * the double times 1000 to the nearest integer, which is what the
+ * writer does; the rare value within a few ulps of a tie, or too
+ * large, negative or not finite, is handed to {@code String.format}
+ * instead. So is every value in a locale whose decimal separator or
+ * digits are not those of the US.
+ */
+class TraceWriter {
+
+    private static final double LIMIT = 1e15;      // largest value written directly
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final byte[] ARRIVES = TraceWriter.ascii("arrives\n");
+    private static final byte[] SERVES = TraceWriter.ascii("serves by ");
+    private static final byte[] WAITS = TraceWriter.ascii("waits at ");
+    private static final byte[] DONE = TraceWriter.ascii("done serving by ");
+    private static final byte[] LEAVES = TraceWriter.ascii("leaves\n");
+    private static final byte[] SELF_CHECK = TraceWriter.ascii("self-check ");
+    private static final byte[] ZERO = TraceWriter.ascii("0.000");
+
+    private static Locale checkedLocale;   // the last locale checked, and whether
+    private static boolean checkedPlain;   // it formats numbers as the US does
+
+    private final boolean plain;
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+    private final byte[] digits = new byte[20];  // scratch for one integer
+
+    /**
+     * Constructs an empty TraceWriter for the current default
+     * locale.
+     */
+    TraceWriter() {
+        this.plain = TraceWriter.isPlain(Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    /**
+     * Checks if a locale formats {@code %.3f} and {@code %d} with
+     * the US decimal separator and digits, remembering the answer
+     * for the last locale asked about.
+     */
+    private static synchronized boolean isPlain(Locale locale) {
+        if (locale != checkedLocale) {
+            checkedPlain = String.format(locale, "%.3f %d", 1234.5, -67890)
+                .equals("1234.500 -67890");
+            checkedLocale = locale;
+        }
+        return checkedPlain;
+    }
+
+    /**
+     * Returns the bytes of an ASCII String.
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Appends the String representation of an Event: its line, or
+     * nothing for a non-first WaitEvent. Events of any other class
+     * are appended by their own toString.
+     *
+     * @param event the Event
+     * @return this TraceWriter
+     */
+    TraceWriter event(Event event) {
+        double time = event.getTimeStamp();
+        int customerId = event.getCustomer().getCustomerId();
+        Class<?> kind = event.getClass();
+
+        if (kind == ArriveEvent.class) {
+            return this.arrive(time, customerId);
+        } else if (kind == ServeEvent.class) {
+            return this.serve(time, customerId, event.getServer());
+        } else if (kind == WaitEvent.class) {
+            return ((WaitEvent) event).isFirstInstance()
+                ? this.waitAt(time, customerId, event.getServer()) : this;
+        } else if (kind == DoneEvent.class) {
+            return this.done(time, customerId, event.getServer());
+        } else if (kind == LeaveEvent.class) {
+            return this.leave(time, customerId);
+        }
+        return this.text(event.toString());
+    }
+
+    /**
+     * Appends the line of a customer arriving.
+     *
+     * @param time the timestamp
+     * @param customerId the id of the customer
+     * @return this TraceWriter
+     */
+    TraceWriter arrive(double time, int customerId) {
+        this.prefix(time, customerId);
+        this.put(ARRIVES);
+        return this;
+    }
+
+    /**
+     * Appends the line of a customer being served.
+     *
+     * @param time the timestamp
+     * @param customerId the id of the customer
+     * @param server the server or self-checkout serving
+     * @return this TraceWriter
+     */
+    TraceWriter serve(double time, int customerId, Server server) {
+        this.prefix(time, customerId);
+        this.put(SERVES);
+        return this.server(server);
+    }
+
+    /**
+     * Appends the line of a customer starting to wait.
+     *
+     * @param time the timestamp
+     * @param customerId the id of the customer
+     * @param server the server or self-checkout waited at
+     * @return this TraceWriter
+     */
+    TraceWriter waitAt(double time, int customerId, Server server) {
+        this.prefix(time, customerId);
+        this.put(WAITS);
+        return this.server(server);
+    }
+
+    /**
+     * Appends the line of a customer done being served.
+     *
+     * @param time the timestamp
+     * @param customerId the id of the customer
+     * @param server the server or self-checkout that served
+     * @return this TraceWriter
+     */
+    TraceWriter done(double time, int customerId, Server server) {
+        this.prefix(time, customerId);
+        this.put(DONE);
+        return this.server(server);
+    }
+
+    /**
+     * Appends the line of a customer leaving.
+     *
+     * @param time the timestamp
+     * @param customerId the id of the customer
+     * @return this TraceWriter
+     */
+    TraceWriter leave(double time, int customerId) {
+        this.prefix(time, customerId);
+        this.put(LEAVES);
+        return this;
+    }
+
+    /**
+     * Appends statistics as {@code [average served left]}, or with
+     * the numbers reneged and balked as well if customers could
+     * renege or balk, without a newline.
+     *
+     * @param stats the statistics
+     * @return this TraceWriter
+     */
+    TraceWriter statistics(SimulationStats stats) {
+        if (!this.plain) {
+            return this.text(stats.hasAbandonment()
+                    ? String.format("[%.3f %d %d %d %d]", stats.averageWait(), stats.served(),
+                        stats.left(), stats.reneged(), stats.balked())
+                    : String.format("[%.3f %d %d]", stats.averageWait(),
+                        stats.served(), stats.left()));
+        }
+        this.put((byte) '[');
+        this.fixed(stats.averageWait());
+        this.put((byte) ' ');
+        this.integer(stats.served());
+        this.put((byte) ' ');
+        this.integer(stats.left());
+        if (stats.hasAbandonment()) {
+            this.put((byte) ' ');
+            this.integer(stats.reneged());
+            this.put((byte) ' ');
+            this.integer(stats.balked());
+        }
+        this.put((byte) ']');
+        return this;
+    }
+
+    /**
+     * Appends a String as it is.
+     *
+     * @param text the String
+     * @return this TraceWriter
+     */
+    TraceWriter text(String text) {
+        this.put(text.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    /**
+     * Empties the buffer, keeping its capacity for reuse.
+     */
+    void reset() {
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     *
+     * @return {@code int} value of the size of the output.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Copies the bytes written so far to the start of an array,
+     * which must hold at least {@code size()} bytes.
+     *
+     * @param target the array to copy to
+     */
+    void copyTo(byte[] target) {
+        System.arraycopy(this.bytes, 0, target, 0, this.size);
+    }
+
+    /**
+     * Returns the output written so far.
+     *
+     * @return the String of the output.
+     */
+    @Override
+    public String toString() {
+        return new String(this.bytes, 0, this.size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the timestamp and customer id that start every line,
+     * as {@code Event.toString} does.
+     */
+    private void prefix(double time, int customerId) {
+        this.fixed(time);
+        this.put((byte) ' ');
+        this.integer(customerId);
+        this.put((byte) ' ');
+    }
+
+    /**
+     * Appends the label of a server, as {@code Server.toString}
+     * does, followed by a newline.
+     */
+    private TraceWriter server(Server server) {
+        if (server.isSelf()) {
+            this.put(SELF_CHECK);
+        }
+        this.integer(server.getServerId());
+        this.put((byte) '\n');
+        return this;
+    }
+
+    /**
+     * Appends a double with 3 decimal places, as {@code %.3f} does.
+     */
+    private void fixed(double value) {
+        double scaled = value * 1000.0;
+        if (!this.plain || !(value > 0.0 && scaled < LIMIT)) {
+            if (this.plain && Double.doubleToRawLongBits(value) == 0L) {
+                this.put(ZERO);     // +0.0; -0.0 is written as -0.000
+            } else {
+                this.text(String.format("%.3f", value));
+            }
+            return;
+        }
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) { // too close to a tie
+            this.text(String.format("%.3f", value));
+            return;
+        }
+
+        long thousandths = (long) floor + (fraction > 0.5 ? 1 : 0);
+        this.integer(thousandths / 1000);
+        int decimals = (int) (thousandths % 1000);
+        this.put((byte) '.');
+        this.put((byte) ('0' + decimals / 100));
+        this.put((byte) ('0' + decimals / 10 % 10));
+        this.put((byte) ('0' + decimals % 10));
+    }
+
+    /**
+     * Appends a non-negative long, or a negative one by
+     * {@code String.valueOf}.
+     */
+    private void integer(long value) {
+        if (value < 0) {
+            this.text(String.valueOf(value));
+            return;
+        }
+        int n = 0;
+        do {
+            this.digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        this.ensure(n);
+        while (n > 0) {
+            this.bytes[this.size++] = this.digits[--n];
+        }
+    }
+
+    private void put(byte b) {
+        this.ensure(1);
+        this.bytes[this.size++] = b;
+    }
+
+    private void put(byte[] b) {
+        this.ensure(b.length);
+        System.arraycopy(b, 0, this.bytes, this.size, b.length);
+        this.size += b.length;
+    }
+
+    /**
+     * Grows the buffer to hold the given number of further bytes.
+     */
+    private void ensure(int more) {
+        if (this.size + more > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes,
+                    Math.max(2 * this.bytes.length, this.size + more));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * A UniformStream is a source of uniform numbers in [0, 1) that can
+ * be split into substreams by key, as a {@link Scenario} draws its
+ * inputs: replication, then kind of input, then customer or server.
+ * A {@link RandomStream} is one, with pseudorandom numbers; a
+ * {@link SobolStream} is another, laying the inputs of each
+ * replication over one point of a scrambled Sobol sequence.
+ */
+public interface UniformStream {
+
+    /**
+     * Returns the next uniform number in [0, 1).
+     *
+     * @return {@code double} value of the number.
+     */
+    double next();
+
+    /**
+     * Returns the substream of the given key.
+     *
+     * @param key the key of the substream
+     * @return the substream.
+     */
+    UniformStream substream(long key);
+}
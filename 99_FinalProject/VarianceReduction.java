@@ -0,0 +1,261 @@
+import java.util.Scanner;
+
+/**
+ * The VarianceReduction class consists of only static methods, which
+ * estimate the average waiting time of a {@link Scenario} from
+ * replications, using crude Monte Carlo or one of four variance
+ * reduction techniques:
+ *
+ * <ul>
+ * <li>antithetic variates, pairing every replication with one
+ * driven by the complementary uniforms;
+ * <li>control variates, regressing the average wait on the
+ * deviation of the mean service and rest times drawn from their
+ * known means;
+ * <li>common random numbers, comparing two Scenarios on the same,
+ * customer-synchronised random numbers;
+ * <li>randomised quasi-Monte Carlo, driving the replications by the
+ * points of independently scrambled Sobol sequences.
+ * </ul>
+ *
+ * <p>Each method reports the variance reduction it achieved over
+ * crude Monte Carlo with the same number of simulator runs.
+ */
+public class VarianceReduction {
+
+    private static final int QMC_SCRAMBLINGS = 8;
+
+    private VarianceReduction() {
+    }
+
+    /**
+     * Estimates the average wait by crude Monte Carlo.
+     *
+     * @param scenario the Scenario to replicate
+     * @param stream the stream replication i uses substream i of
+     * @param n the number of replications
+     * @return the crude {@code Estimate}.
+     */
+    public static Estimate crude(Scenario scenario, RandomStream stream, int n) {
+        double[] y = scenario.averageWaits(stream, n);
+        double variance = VarianceReduction.variance(y) / n;
+        return new Estimate("crude", n, VarianceReduction.mean(y), variance, variance);
+    }
+
+    /**
+     * Estimates the average wait from antithetic pairs of
+     * replications.
+     *
+     * @param scenario the Scenario to replicate
+     * @param stream the stream pair i uses substream i of
+     * @param pairs the number of antithetic pairs
+     * @return the antithetic {@code Estimate}.
+     */
+    public static Estimate antithetic(Scenario scenario, RandomStream stream, int pairs) {
+        double[] y = scenario.averageWaits(stream, pairs);
+        double[] z = scenario.averageWaits(stream.antithetic(), pairs); // twins of the above
+        double[] all = new double[2 * pairs];
+        double[] pairMeans = new double[pairs];
+        for (int i = 0; i < pairs; i++) {
+            all[2 * i] = y[i];
+            all[2 * i + 1] = z[i];
+            pairMeans[i] = (all[2 * i] + all[2 * i + 1]) / 2;
+        }
+        return new Estimate("antithetic", 2 * pairs, VarianceReduction.mean(pairMeans),
+                VarianceReduction.variance(pairMeans) / pairs,
+                VarianceReduction.variance(all) / (2 * pairs));
+    }
+
+    /**
+     * Estimates the average wait with the mean service and rest
+     * times drawn as control variates. A control whose draws do not
+     * vary, such as a constant service time, is left out.
+     *
+     * @param scenario the Scenario to replicate
+     * @param stream the stream replication i uses substream i of
+     * @param n the number of replications
+     * @return the control-variate {@code Estimate}.
+     */
+    public static Estimate controlVariates(Scenario scenario, RandomStream stream, int n) {
+        double[] y = new double[n];
+        double[] service = new double[n];
+        double[] rest = new double[n];
+        for (int i = 0; i < n; i++) {
+            Replication r = scenario.replicate(stream.substream(i));
+            y[i] = r.stats().averageWait();
+            service[i] = r.meanService() - scenario.getServiceTimes().mean();
+            rest[i] = r.meanRest() - scenario.getRestTimes().mean();
+        }
+
+        ImList<double[]> controls = new ImList<double[]>();
+        for (double[] c : new double[][] {service, rest}) {
+            if (VarianceReduction.variance(c) > 1e-12) {
+                controls = controls.add(c);
+            }
+        }
+
+        double[] beta = VarianceReduction.regress(y, controls);
+        double yBar = VarianceReduction.mean(y);
+        double estimate = yBar;
+        double[] residuals = new double[n];
+        for (int i = 0; i < n; i++) {
+            residuals[i] = y[i] - yBar;
+        }
+        for (int k = 0; k < beta.length; k++) {
+            double[] c = controls.get(k);
+            double cBar = VarianceReduction.mean(c);
+            estimate -= beta[k] * cBar;
+            for (int i = 0; i < n; i++) {
+                residuals[i] -= beta[k] * (c[i] - cBar);
+            }
+        }
+
+        double residualVariance = 0.0;
+        for (double e : residuals) {
+            residualVariance += e * e;
+        }
+        residualVariance /= Math.max(1, n - 1 - beta.length);
+
+        return new Estimate("control variates", n, estimate, residualVariance / n,
+                VarianceReduction.variance(y) / n);
+    }
+
+    /**
+     * Estimates the difference between the average waits of two
+     * Scenarios from replications that use common random numbers.
+     *
+     * @param first the first Scenario
+     * @param second the second Scenario
+     * @param stream the stream replication i of both uses substream i of
+     * @param n the number of replications of each Scenario
+     * @return the {@code Estimate} of first minus second.
+     */
+    public static Estimate commonRandomNumbers(Scenario first, Scenario second,
+            RandomStream stream, int n) {
+        double[] a = first.averageWaits(stream, n);
+        double[] b = second.averageWaits(stream, n);
+        double[] d = new double[n];
+        for (int i = 0; i < n; i++) {
+            d[i] = a[i] - b[i];
+        }
+        return new Estimate("common random numbers", 2 * n, VarianceReduction.mean(d),
+                VarianceReduction.variance(d) / n,
+                (VarianceReduction.variance(a) + VarianceReduction.variance(b)) / n);
+    }
+
+    /**
+     * Estimates the average wait by randomised quasi-Monte Carlo:
+     * each scrambling of a Sobol sequence drives one replication
+     * per point, laid out as in {@link Scenario#quasiRandom}, and the
+     * averages of the independent scramblings give the estimate and
+     * its variance. Powers of 2 make the best numbers of points.
+     *
+     * @param scenario the Scenario to replicate
+     * @param stream the stream scrambling i uses substream i of
+     * @param scramblings the number of scramblings
+     * @param points the number of points of each scrambling
+     * @return the quasi-Monte Carlo {@code Estimate}.
+     */
+    public static Estimate quasiMonteCarlo(Scenario scenario, RandomStream stream,
+            int scramblings, int points) {
+        SobolSequence sequence = new SobolSequence(scenario.dimensions());
+        double[] all = new double[scramblings * points];
+        double[] scramblingMeans = new double[scramblings];
+        for (int i = 0; i < scramblings; i++) {
+            RandomStream substream = stream.substream(i); // replications use keys from 0
+            UniformStream quasiRandom = scenario.quasiRandom(
+                    sequence.scramble(substream.substream(-1)), substream);
+            double[] y = scenario.averageWaits(quasiRandom, points);
+            System.arraycopy(y, 0, all, i * points, points);
+            scramblingMeans[i] = VarianceReduction.mean(y);
+        }
+        return new Estimate("randomised QMC", scramblings * points,
+                VarianceReduction.mean(scramblingMeans),
+                VarianceReduction.variance(scramblingMeans) / scramblings,
+                VarianceReduction.variance(all) / (scramblings * points));
+    }
+
+    /**
+     * Returns the least-squares coefficients of y on one or two
+     * controls.
+     */
+    private static double[] regress(double[] y, ImList<double[]> controls) {
+        if (controls.isEmpty()) {
+            return new double[0];
+        }
+        double[] first = controls.get(0);
+        double s11 = VarianceReduction.covariance(first, first);
+        double s1y = VarianceReduction.covariance(first, y);
+        if (controls.size() == 1) {
+            return new double[] {s1y / s11};
+        }
+
+        double[] second = controls.get(1);
+        double s22 = VarianceReduction.covariance(second, second);
+        double s12 = VarianceReduction.covariance(first, second);
+        double s2y = VarianceReduction.covariance(second, y);
+        double det = s11 * s22 - s12 * s12;
+        return new double[] {(s22 * s1y - s12 * s2y) / det, (s11 * s2y - s12 * s1y) / det};
+    }
+
+    /**
+     * Returns the sample mean.
+     */
+    static double mean(double[] x) {
+        double sum = 0.0;
+        for (double v : x) {
+            sum += v;
+        }
+        return sum / x.length;
+    }
+
+    /**
+     * Returns the unbiased sample variance.
+     */
+    static double variance(double[] x) {
+        return VarianceReduction.covariance(x, x);
+    }
+
+    /**
+     * Returns the unbiased sample covariance.
+     */
+    private static double covariance(double[] x, double[] y) {
+        double mx = VarianceReduction.mean(x);
+        double my = VarianceReduction.mean(y);
+        double sum = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            sum += (x[i] - mx) * (y[i] - my);
+        }
+        return sum / (x.length - 1);
+    }
+
+    /**
+     * Reads a scenario in the input format of the Main class and
+     * prints a report of every method. Common random numbers are
+     * used to estimate how much one more server reduces the
+     * average wait. Quasi-Monte Carlo uses 8 scramblings of the
+     * largest power of 2 of points that fits in the replications.
+     * The number of replications may be given as the first
+     * argument and defaults to 100. The kernel first-come-first-served
+     * replications run on is named on standard error, so that a
+     * vector kernel that failed to load does not go unnoticed.
+     *
+     * @param args the optional number of replications
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        Scanner sc = new Scanner(System.in);
+        Scenario scenario = Scenario.read(sc);
+        sc.close();
+        RandomStream stream = new RandomStream(2030L);
+        System.err.println("replication kernel: " + ReplicationKernel.load().name());
+
+        System.out.println(VarianceReduction.crude(scenario, stream, n));
+        System.out.println(VarianceReduction.antithetic(scenario, stream, n / 2));
+        System.out.println(VarianceReduction.controlVariates(scenario, stream, n));
+        System.out.println(VarianceReduction.commonRandomNumbers(scenario,
+                    scenario.withServers(scenario.getServers() + 1), stream, n / 2));
+        System.out.println(VarianceReduction.quasiMonteCarlo(scenario, stream,
+                    QMC_SCRAMBLINGS, Integer.highestOneBit(Math.max(1, n / QMC_SCRAMBLINGS))));
+    }
+}
@@ -35,6 +35,16 @@ public class WaitEvent extends Event {
         this(timeStamp, customer, server, true);
     }
 
+    /**
+     * Returns whether the WaitEvent is the first instance, whose
+     * String representation is printed.
+     *
+     * @return {@code true} if this is the first instance.
+     */
+    boolean isFirstInstance() {
+        return this.firstInstance;
+    }
+
     /**
      * The String representation of the WaitEvent. Only the first instance
      * of WaitEvents return a full string. Repeated occurences of WaitEvents
@@ -0,0 +1,68 @@
+import java.util.Arrays;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The ReplicationKernel that advances as many replications as fit
+ * in a SIMD register in lock-step, one replication per lane, using
+ * the incubating Vector API. The server a customer goes to differs
+ * from lane to lane, so every server's workload is updated under
+ * the mask of the lanes whose customer it serves. The replications
+ * left over after the last whole vector are run by the scalar
+ * kernel, with the same arithmetic, so the results do not depend on
+ * which kernel runs a replication.
+ *
+ * <p>This class is optional. It is compiled and run with
+ * {@code --add-modules jdk.incubator.vector}, and is loaded by
+ * {@code ReplicationKernel.load} only if it is on the classpath.
+ */
+class VectorReplicationKernel implements ReplicationKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void totalWaits(double[] arrivals, int servers, double[] serviceTimes,
+            double[] totalWaits) {
+        int replications = totalWaits.length;
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(replications);
+        double[] workload = new double[servers * lanes]; // lanes of server j from j * lanes
+
+        for (int r = 0; r < bound; r += lanes) {
+            Arrays.fill(workload, 0.0);
+            DoubleVector total = DoubleVector.zero(SPECIES);
+
+            for (int i = 0; i < arrivals.length; i++) {
+                DoubleVector a = DoubleVector.broadcast(SPECIES, arrivals[i]);
+                DoubleVector s = DoubleVector.fromArray(SPECIES, serviceTimes,
+                        i * replications + r);
+                DoubleVector done = a.add(s);
+                VectorMask<Double> served = SPECIES.maskAll(false);
+
+                for (int j = 0; j < servers; j++) { // first server whose workload ran out
+                    DoubleVector w = DoubleVector.fromArray(SPECIES, workload, j * lanes);
+                    VectorMask<Double> idle = w.compare(VectorOperators.LE, a).andNot(served);
+                    w.blend(done, idle).intoArray(workload, j * lanes);
+                    served = served.or(idle);
+                }
+
+                VectorMask<Double> queued = served.not(); // queue at server 1
+                DoubleVector first = DoubleVector.fromArray(SPECIES, workload, 0);
+                total = total.add(first.sub(a), queued);
+                first.add(s, queued).intoArray(workload, 0);
+            }
+            total.add(DoubleVector.fromArray(SPECIES, totalWaits, r))
+                .intoArray(totalWaits, r);
+        }
+
+        ScalarReplicationKernel.INSTANCE.totalWaits(arrivals, servers, serviceTimes,
+                totalWaits, bound);
+    }
+
+    @Override
+    public String name() {
+        return "vector x" + SPECIES.length();
+    }
+}